@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wiremock.extensions.state.internal.model.ChunkedList;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former `LinkedList` backed context list with {@link ChunkedList}.
+ * <p>
+ * Both variants are used the way the extension uses them: `LinkedList` was copied on every read and modified in
+ * place, `ChunkedList` is shared by readers and replaced on modification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ContextListBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    private final Map<String, String> entry = Map.of("status", "done");
+    private LinkedList<Map<String, String>> linkedList;
+    private ChunkedList<Map<String, String>> chunkedList;
+
+    @Setup
+    public void setup() {
+        linkedList = new LinkedList<>();
+        chunkedList = ChunkedList.empty();
+        for (int i = 0; i < size; i++) {
+            var element = Map.of("index", String.valueOf(i));
+            linkedList.addLast(element);
+            chunkedList = chunkedList.append(element);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> linkedListGetMiddle() {
+        return linkedList.get(size / 2);
+    }
+
+    @Benchmark
+    public Map<String, String> chunkedListGetMiddle() {
+        return chunkedList.get(size / 2);
+    }
+
+    @Benchmark
+    public Map<String, String> linkedListGetLast() {
+        return linkedList.getLast();
+    }
+
+    @Benchmark
+    public Map<String, String> chunkedListGetLast() {
+        return chunkedList.last();
+    }
+
+    @Benchmark
+    public Map<String, String> linkedListQueueCycle() {
+        linkedList.addLast(entry);
+        return linkedList.removeFirst();
+    }
+
+    @Benchmark
+    public Map<String, String> chunkedListQueueCycle() {
+        var first = chunkedList.first();
+        chunkedList = chunkedList.append(entry).withoutFirst();
+        return first;
+    }
+
+    @Benchmark
+    public LinkedList<Map<String, String>> linkedListReadCopy() {
+        var copy = new LinkedList<Map<String, String>>();
+        linkedList.forEach(it -> copy.add(new HashMap<>(it)));
+        return copy;
+    }
+
+    @Benchmark
+    public ChunkedList<Map<String, String>> chunkedListReadSnapshot() {
+        return chunkedList;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Context reads and writes, on a context of its own per thread and on a context shared by all threads.
+ * <p>
+ * Lists are kept at `listSize` entries: every list update appends one entry and removes the first one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContextManagerBenchmark {
+
+    private static final int THREADS = 4;
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        @Param({"10", "1000", "100000"})
+        int listSize;
+
+        final AtomicInteger threadCounter = new AtomicInteger();
+        ContextManager contextManager;
+
+        @Setup
+        public void setup() {
+            contextManager = new ContextManager(new CaffeineStore(), new TransactionManager(), new ExtensionLogger(false));
+            fill("shared");
+        }
+
+        void fill(String contextName) {
+            var requestId = UUID.randomUUID().toString();
+            contextManager.createOrUpdateContextState(requestId, contextName, Map.of("status", "done"));
+            for (int i = 0; i < listSize; i++) {
+                var entry = Map.of("index", String.valueOf(i));
+                contextManager.createOrUpdateContextList(requestId, contextName, list -> list.append(entry));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final String requestId = UUID.randomUUID().toString();
+        final Map<String, String> properties = Map.of("status", "done");
+        final Map<String, String> entry = Map.of("status", "done");
+        String contextName;
+
+        @Setup
+        public void setup(SharedState sharedState) {
+            contextName = "context-" + sharedState.threadCounter.incrementAndGet();
+            sharedState.fill(contextName);
+        }
+    }
+
+    @Benchmark
+    public void createOrUpdateContextState(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextState(threadState.requestId, threadState.contextName, threadState.properties);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public void createOrUpdateContextStateSharedContext(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextState(threadState.requestId, "shared", threadState.properties);
+    }
+
+    @Benchmark
+    public void createOrUpdateContextList(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextList(
+            threadState.requestId,
+            threadState.contextName,
+            list -> list.append(threadState.entry).withoutFirst()
+        );
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public void createOrUpdateContextListSharedContext(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextList(
+            threadState.requestId,
+            "shared",
+            list -> list.append(threadState.entry).withoutFirst()
+        );
+    }
+
+    @Benchmark
+    public Optional<Context> getContextCopy(SharedState sharedState, ThreadState threadState) {
+        return sharedState.contextManager.getContextCopy(threadState.contextName);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public Optional<Context> getContextCopySharedContext(SharedState sharedState) {
+        return sharedState.contextManager.getContextCopy("shared");
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.ShardedStore;
+import org.wiremock.extensions.state.extensions.DeleteStateEventListener;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.matching.MockRequest.mockRequest;
+
+/**
+ * Deletion by `contextsMatching` with `contextCount` contexts in the store.
+ * <p>
+ * The patterns do not match any context, so every invocation scans all contexts without changing the store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DeleteStateBenchmark {
+
+    @Param({"100", "10000"})
+    int contextCount;
+
+    @Param({"1", "8"})
+    int shards;
+
+    private final Parameters staticParameters = Parameters.from(Map.of("contextsMatching", "unknown-.*"));
+    private final Parameters templatedParameters = Parameters.from(Map.of("contextsMatching", "unknown-{{request.pathSegments.[0]}}-.*"));
+
+    private StateExtensionFixture fixture;
+    private DeleteStateEventListener listener;
+    private ServeEvent serveEvent;
+
+    @Setup
+    public void setup() {
+        fixture = new StateExtensionFixture(shards > 1 ? new ShardedStore(shards, CaffeineStore::new) : new CaffeineStore(), false);
+        listener = fixture.getExtension(DeleteStateEventListener.class);
+        serveEvent = ServeEvent.of(mockRequest().url("/benchmark").asLoggedRequest());
+
+        var contextManager = new ContextManager(fixture.getStore(), new TransactionManager(), new ExtensionLogger(false));
+        var requestId = UUID.randomUUID().toString();
+        for (int i = 0; i < contextCount; i++) {
+            contextManager.createOrUpdateContextState(requestId, "context-" + i, Map.of("status", "done"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void staticContextsMatching() {
+        listener.beforeResponseSent(serveEvent, staticParameters);
+    }
+
+    @Benchmark
+    public void templatedContextsMatching() {
+        listener.beforeResponseSent(serveEvent, templatedParameters);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void staticContextsMatchingMultiThreaded() {
+        listener.beforeResponseSent(serveEvent, staticParameters);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wiremock.extensions.state.extensions.RecordStateEventListener;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.matching.MockRequest.mockRequest;
+
+/**
+ * Cost of `recordState` for stub mappings with and without templates.
+ * <p>
+ * Static stub mappings are not supposed to involve handlebars nor build a template model. Compare the allocation rate
+ * reported by `-prof gc` (`gc.alloc.rate.norm`) of both benchmarks. `infoEnabled=false` resembles WireMock running
+ * without `verbose`, where no log message should be built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RecordStateBenchmark {
+
+    @Param({"true", "false"})
+    boolean infoEnabled;
+
+    private final Parameters staticParameters = Parameters.from(Map.of(
+        "context", "static-context",
+        "state", Map.of("status", "done", "source", "static")
+    ));
+    private final Parameters templatedParameters = Parameters.from(Map.of(
+        "context", "{{request.pathSegments.[0]}}",
+        "state", Map.of("status", "done", "source", "{{request.method}}")
+    ));
+
+    private StateExtensionFixture fixture;
+    private RecordStateEventListener listener;
+    private ServeEvent serveEvent;
+
+    @Setup
+    public void setup() {
+        fixture = new StateExtensionFixture(infoEnabled);
+        listener = fixture.getExtension(RecordStateEventListener.class);
+        serveEvent = ServeEvent.of(mockRequest().url("/templated-context").asLoggedRequest());
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void staticRecordState() {
+        listener.beforeResponseSent(serveEvent, staticParameters);
+    }
+
+    @Benchmark
+    public void templatedRecordState() {
+        listener.beforeResponseSent(serveEvent, templatedParameters);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.extension.ExtensionFactory;
+import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateExtension;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * WireMock server with the state extensions registered, giving benchmarks access to the extension instances.
+ */
+class StateExtensionFixture implements AutoCloseable {
+
+    private final Store<String, Object> store;
+    private final WireMockServer server;
+    private List<Extension> extensions;
+
+    StateExtensionFixture(boolean verbose) {
+        this(new CaffeineStore(), verbose);
+    }
+
+    StateExtensionFixture(Store<String, Object> store, boolean verbose) {
+        this.store = store;
+        var stateExtension = new StateExtension(store, false, verbose);
+        ExtensionFactory capturingFactory = services -> {
+            extensions = stateExtension.create(services);
+            return extensions;
+        };
+        server = new WireMockServer(wireMockConfig().dynamicPort().extensions(capturingFactory));
+        server.start();
+    }
+
+    Store<String, Object> getStore() {
+        return store;
+    }
+
+    <T extends Extension> T getExtension(Class<T> type) {
+        return extensions.stream()
+            .filter(type::isInstance)
+            .map(type::cast)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("extension not registered: " + type.getName()));
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Options;
+import com.github.jknack.handlebars.TagType;
+import com.github.jknack.handlebars.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.extensions.StateHandlerbarHelper;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The `state` template helper with the different kinds of lookups, on a context with `listSize` list entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StateHandlerbarHelperBenchmark {
+
+    @Param({"10", "1000"})
+    int listSize;
+
+    @Param({"property", "propertyMissingWithDefault", "updateCount", "listSize", "listIndex", "listLast"})
+    String lookup;
+
+    private StateHandlerbarHelper helper;
+    private Options options;
+
+    @Setup
+    public void setup() {
+        var contextManager = new ContextManager(new CaffeineStore(), new TransactionManager(), new ExtensionLogger(false));
+        var requestId = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(requestId, "benchmark-context", Map.of("status", "done"));
+        for (int i = 0; i < listSize; i++) {
+            var entry = Map.of("status", "done", "index", String.valueOf(i));
+            contextManager.createOrUpdateContextList(requestId, "benchmark-context", list -> list.append(entry));
+        }
+        helper = new StateHandlerbarHelper(contextManager);
+        options = new Options.Builder(
+            new Handlebars(),
+            "state",
+            TagType.VAR,
+            com.github.jknack.handlebars.Context.newContext(null),
+            Template.EMPTY
+        )
+            .setHash(createHash())
+            .build();
+    }
+
+    private Map<String, Object> createHash() {
+        switch (lookup) {
+            case "property":
+                return Map.of("context", "benchmark-context", "property", "status");
+            case "propertyMissingWithDefault":
+                return Map.of("context", "benchmark-context", "property", "unknown", "default", "fallback");
+            case "updateCount":
+                return Map.of("context", "benchmark-context", "property", "updateCount");
+            case "listSize":
+                return Map.of("context", "benchmark-context", "property", "listSize");
+            case "listIndex":
+                return Map.of("context", "benchmark-context", "list", "[1].index");
+            default:
+                return Map.of("context", "benchmark-context", "list", "[-1].index");
+        }
+    }
+
+    @Benchmark
+    public Object apply() {
+        return helper.apply(null, options);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object applyMultiThreaded() {
+        return helper.apply(null, options);
+    }
+}
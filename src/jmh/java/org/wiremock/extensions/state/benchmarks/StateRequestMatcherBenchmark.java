@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.wiremock.extensions.state.extensions.StateRequestMatcher;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.matching.MockRequest.mockRequest;
+
+/**
+ * Request matching with each context matcher, on a context with 100 list entries.
+ * <p>
+ * The context name is a template, so every match renders it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StateRequestMatcherBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    @Param({
+        "hasContext",
+        "hasNotContext",
+        "property",
+        "list",
+        "hasProperty",
+        "hasNotProperty",
+        "updateCountEqualTo",
+        "updateCountLessThan",
+        "updateCountMoreThan",
+        "listSizeEqualTo",
+        "listSizeLessThan",
+        "listSizeMoreThan"
+    })
+    String matcher;
+
+    private StateExtensionFixture fixture;
+    private StateRequestMatcher stateRequestMatcher;
+    private Request request;
+    private Parameters parameters;
+
+    @Setup
+    public void setup() {
+        fixture = new StateExtensionFixture(false);
+        stateRequestMatcher = fixture.getExtension(StateRequestMatcher.class);
+        request = mockRequest().url("/benchmark-context").asLoggedRequest();
+
+        var contextManager = new ContextManager(fixture.getStore(), new TransactionManager(), new ExtensionLogger(false));
+        var requestId = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(requestId, "benchmark-context", Map.of("status", "done"));
+        for (int i = 0; i < LIST_SIZE; i++) {
+            var entry = Map.of("status", "done", "index", String.valueOf(i));
+            contextManager.createOrUpdateContextList(requestId, "benchmark-context", list -> list.append(entry));
+        }
+
+        parameters = Parameters.from(createParameters());
+    }
+
+    private Map<String, Object> createParameters() {
+        var result = new HashMap<String, Object>();
+        var statusDone = Map.of("status", Map.of("equalTo", "done"));
+        switch (matcher) {
+            case "hasContext":
+                result.put("hasContext", "{{request.pathSegments.[0]}}");
+                break;
+            case "hasNotContext":
+                result.put("hasNotContext", "unknown-{{request.pathSegments.[0]}}");
+                break;
+            case "property":
+                result.put("hasContext", "{{request.pathSegments.[0]}}");
+                result.put("property", statusDone);
+                break;
+            case "list":
+                result.put("hasContext", "{{request.pathSegments.[0]}}");
+                result.put("list", Map.of("-1", statusDone));
+                break;
+            case "hasProperty":
+            case "hasNotProperty":
+                result.put("hasContext", "{{request.pathSegments.[0]}}");
+                result.put(matcher, "status");
+                break;
+            default:
+                result.put("hasContext", "{{request.pathSegments.[0]}}");
+                result.put(matcher, "1");
+        }
+        return result;
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public MatchResult match() {
+        return stateRequestMatcher.match(request, parameters);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MatchResult matchMultiThreaded() {
+        return stateRequestMatcher.match(request, parameters);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of context writes with and without lock striping.
+ * <p>
+ * `lockStripes=1` resembles a single global lock. Run with different thread counts to get a scaling curve, e.g.
+ * `./gradlew jmh -PjmhIncludes=TransactionManagerBenchmark -PjmhThreads=16`.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransactionManagerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        @Param({"1", "64"})
+        int lockStripes;
+
+        final AtomicInteger threadCounter = new AtomicInteger();
+        ContextManager contextManager;
+
+        @Setup
+        public void setup() {
+            var store = new CaffeineStore();
+            contextManager = new ContextManager(store, new TransactionManager(lockStripes));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final String requestId = UUID.randomUUID().toString();
+        final Map<String, String> properties = Map.of("status", "done");
+        String contextName;
+
+        @Setup
+        public void setup(SharedState sharedState) {
+            contextName = "context-" + sharedState.threadCounter.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public void writeDistinctContexts(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextState(threadState.requestId, threadState.contextName, threadState.properties);
+    }
+
+    @Benchmark
+    public void writeSameContext(SharedState sharedState, ThreadState threadState) {
+        sharedState.contextManager.createOrUpdateContextState(threadState.requestId, "shared", threadState.properties);
+    }
+}
@@ -17,54 +17,261 @@ package org.wiremock.extensions.state;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.tomakehurst.wiremock.store.Store;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import org.wiremock.extensions.state.internal.ContextWeigher;
+import org.wiremock.extensions.state.internal.model.Context;
 
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Stream;
 
-public class CaffeineStore implements Store<String, Object> {
+/**
+ * Store based on caffeine caches with an expiration after write.
+ * <p>
+ * Contexts with a time to live (see `ttl` of `recordState`) expire after their own duration, all other entries after
+ * the store's expiration.
+ * <p>
+ * Every namespace is kept in a cache of its own. With a maximum weight (see {@link Builder#maximumWeightPerNamespace(long)}), each
+ * cache evicts entries once the estimated size of its entries exceeds the given number of bytes. The budget applies per
+ * namespace, not per store: a store with `n` namespaces may hold up to `n` times the maximum weight.
+ * <p>
+ * {@link #getStatistics()} reports the number and estimated size of all entries. Hit, miss and eviction counts have to
+ * be enabled by {@link Builder#recordStats(boolean)}.
+ *
+ * @see NamespacedStore
+ * @see ContextWeigher
+ */
+public class CaffeineStore implements NamespacedStore, StatisticsStore {
 
     private static final int DEFAULT_EXPIRATION_SECONDS = 60 * 60;
+    private static final String CONTEXT_NAMESPACE = "context";
 
-    private final Cache<String, Object> cache;
+    private final Duration expiration;
+    private final long maximumWeight;
+    private final boolean promptExpiration;
+    private final StoreEvictionListener evictionListener;
+    private final boolean recordStats;
+    private final ConcurrentMap<String, Cache<String, Object>> namespaces = new ConcurrentHashMap<>();
 
     public CaffeineStore() {
         this(0);
     }
 
     public CaffeineStore(int expirationSeconds) {
-        var builder = Caffeine.newBuilder();
-        if (expirationSeconds == 0) {
-            builder.expireAfterWrite(Duration.ofSeconds(DEFAULT_EXPIRATION_SECONDS));
+        this(builder().expirationSeconds(expirationSeconds));
+    }
+
+    private CaffeineStore(Builder builder) {
+        if (builder.expirationSeconds == 0) {
+            expiration = Duration.ofSeconds(DEFAULT_EXPIRATION_SECONDS);
         } else {
-            builder.expireAfterWrite(Duration.ofSeconds(expirationSeconds));
+            expiration = Duration.ofSeconds(builder.expirationSeconds);
         }
-        cache = builder.build();
+        this.maximumWeight = builder.maximumWeight;
+        this.promptExpiration = builder.promptExpiration;
+        this.evictionListener = builder.evictionListener;
+        this.recordStats = builder.recordStats;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private Cache<String, Object> createCache() {
+        var builder = Caffeine.newBuilder().expireAfter(new ContextExpiry(expiration));
+        if (promptExpiration) {
+            builder.scheduler(Scheduler.systemScheduler());
+        }
+        if (recordStats) {
+            builder.recordStats();
+        }
+        if (evictionListener != null) {
+            builder.removalListener((String key, Object value, RemovalCause cause) -> {
+                if (cause.wasEvicted()) {
+                    evictionListener.onEviction(key, value, StoreEvictionListener.Cause.valueOf(cause.name()));
+                }
+            });
+        }
+        if (maximumWeight > 0) {
+            return builder
+                .maximumWeight(maximumWeight)
+                .<String, Object>weigher(ContextWeigher::weigh)
+                .build();
+        }
+        return builder.build();
+    }
+
+    private Optional<Cache<String, Object>> findCache(String key) {
+        return Optional.ofNullable(namespaces.get(NamespacedStore.getNamespace(key)));
     }
 
     @Override
     public Stream<String> getAllKeys() {
-        return cache.asMap().keySet().stream();
+        return namespaces.values().stream().flatMap(it -> it.asMap().keySet().stream());
+    }
+
+    @Override
+    public Stream<String> getKeys(String namespace) {
+        return Optional.ofNullable(namespaces.get(namespace))
+            .map(it -> it.asMap().keySet().stream())
+            .orElseGet(Stream::empty);
     }
 
     @Override
     public Optional<Object> get(String key) {
-        return Optional.ofNullable(cache.getIfPresent(key));
+        return findCache(key).map(it -> it.getIfPresent(key));
     }
 
     @Override
     public void put(String key, Object content) {
-        cache.put(key, content);
+        namespaces.computeIfAbsent(NamespacedStore.getNamespace(key), it -> createCache()).put(key, content);
     }
 
     @Override
     public void remove(String key) {
-        cache.invalidate(key);
+        findCache(key).ifPresent(it -> it.invalidate(key));
     }
 
     @Override
     public void clear() {
-        cache.invalidateAll();
+        namespaces.values().forEach(Cache::invalidateAll);
+    }
+
+    @Override
+    public StoreStatistics getStatistics() {
+        var statistics = StoreStatistics.EMPTY;
+        for (var namespace : namespaces.entrySet()) {
+            var cache = namespace.getValue();
+            var stats = cache.stats();
+            var entryCount = cache.estimatedSize();
+            statistics = statistics.plus(
+                StoreStatistics.builder()
+                    .entryCount(entryCount)
+                    .contextCount(namespace.getKey().equals(CONTEXT_NAMESPACE) ? entryCount : 0)
+                    .estimatedBytes(cache.asMap().entrySet().stream().mapToLong(it -> ContextWeigher.weigh(it.getKey(), it.getValue())).sum())
+                    .hitCount(stats.hitCount())
+                    .missCount(stats.missCount())
+                    .loadCount(stats.loadSuccessCount() + stats.loadFailureCount())
+                    .evictionCount(stats.evictionCount())
+                    .evictionWeight(stats.evictionWeight())
+                    .build()
+            );
+        }
+        return statistics;
+    }
+
+    private static class ContextExpiry implements Expiry<String, Object> {
+        // longest duration representable in nanoseconds, about 292 years
+        private static final Duration MAXIMUM_EXPIRATION = Duration.ofNanos(Long.MAX_VALUE);
+        private final long defaultExpirationNanos;
+
+        ContextExpiry(Duration defaultExpiration) {
+            this.defaultExpirationNanos = defaultExpiration.toNanos();
+        }
+
+        private long getExpirationNanos(Object value) {
+            if (value instanceof Context && ((Context) value).getTtl() != null) {
+                var ttl = ((Context) value).getTtl();
+                return ttl.compareTo(MAXIMUM_EXPIRATION) > 0 ? Long.MAX_VALUE : ttl.toNanos();
+            }
+            return defaultExpirationNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Object value, long currentTime) {
+            return getExpirationNanos(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+            return getExpirationNanos(value);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    public static class Builder {
+        private int expirationSeconds;
+        private long maximumWeight;
+        private boolean promptExpiration;
+        private StoreEvictionListener evictionListener;
+        private boolean recordStats;
+
+        private Builder() {
+        }
+
+        /**
+         * @param expirationSeconds Expiration after write in seconds, `0` for the default of 60 minutes.
+         * @return this builder.
+         */
+        public Builder expirationSeconds(int expirationSeconds) {
+            if (expirationSeconds < 0) {
+                throw new IllegalArgumentException("expirationSeconds must not be negative");
+            }
+            this.expirationSeconds = expirationSeconds;
+            return this;
+        }
+
+        /**
+         * Limits the estimated size of each namespace. The limit is not shared between namespaces: every namespace
+         * may occupy the full weight, so the store as a whole is bounded by the weight times the number of namespaces.
+         * The extension itself only uses the `context` namespace.
+         *
+         * @param maximumWeight Estimated number of bytes each namespace may occupy, `0` for no limit.
+         * @return this builder.
+         * @see ContextWeigher
+         */
+        public Builder maximumWeightPerNamespace(long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeightPerNamespace must not be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Removes expired entries when they expire instead of during later store activity.
+         * <p>
+         * Uses a single system-wide scheduler thread.
+         *
+         * @param promptExpiration `true` to remove expired entries promptly.
+         * @return this builder.
+         */
+        public Builder promptExpiration(boolean promptExpiration) {
+            this.promptExpiration = promptExpiration;
+            return this;
+        }
+
+        /**
+         * @param evictionListener Listener to be notified about expired and evicted entries.
+         * @return this builder.
+         */
+        public Builder evictionListener(StoreEvictionListener evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        /**
+         * Records hits, misses and evictions for {@link CaffeineStore#getStatistics()}. Adds a small overhead to every
+         * access.
+         *
+         * @param recordStats `true` to record usage statistics.
+         * @return this builder.
+         */
+        public Builder recordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+            return this;
+        }
+
+        public CaffeineStore build() {
+            return new CaffeineStore(this);
+        }
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory store supporting optimistic concurrency.
+ * <p>
+ * Versions are taken from a single counter, so a key never gets a version it had before. Entries do not expire:
+ * contexts have to be deleted explicitly.
+ *
+ * @see VersionedStore
+ */
+public class InMemoryVersionedStore implements VersionedStore, NamespacedStore {
+
+    private final AtomicLong versions = new AtomicLong(NO_VERSION);
+    private final ConcurrentMap<String, ConcurrentMap<String, Versioned>> namespaces = new ConcurrentHashMap<>();
+
+    private ConcurrentMap<String, Versioned> getNamespace(String key) {
+        return namespaces.computeIfAbsent(NamespacedStore.getNamespace(key), it -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public Optional<Versioned> getVersioned(String key) {
+        return Optional.ofNullable(getNamespace(key).get(key));
+    }
+
+    @Override
+    public boolean compareAndSet(String key, long expectedVersion, Object newValue) {
+        var written = new boolean[1];
+        getNamespace(key).compute(key, (k, current) -> {
+            var currentVersion = current == null ? NO_VERSION : current.getVersion();
+            if (currentVersion != expectedVersion) {
+                return current;
+            }
+            written[0] = true;
+            return newValue == null ? null : new Versioned(newValue, versions.incrementAndGet());
+        });
+        return written[0];
+    }
+
+    @Override
+    public Stream<String> getKeys(String namespace) {
+        return Optional.ofNullable(namespaces.get(namespace)).map(it -> it.keySet().stream()).orElseGet(Stream::empty);
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return namespaces.values().stream().flatMap(it -> it.keySet().stream());
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        return getVersioned(key).map(Versioned::getValue);
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        getNamespace(key).put(key, new Versioned(content, versions.incrementAndGet()));
+    }
+
+    @Override
+    public void remove(String key) {
+        getNamespace(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        namespaces.values().forEach(Map::clear);
+    }
+}
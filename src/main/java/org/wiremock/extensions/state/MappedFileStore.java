@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.wiremock.extensions.state.internal.storage.AbstractLogStore;
+import org.wiremock.extensions.state.internal.storage.RecordLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
+
+/**
+ * Store keeping contexts in memory-mapped files, so they survive a restart.
+ * <p>
+ * Contexts are appended to segment files in a directory. When opening a directory with existing segments, only the
+ * keys are read, contexts are decoded on first access. Removals are recorded as well, so removed contexts stay
+ * removed after a restart.
+ * <p>
+ * Only contexts are persisted. Other values are kept on the heap and lost on restart. Changes are written to disk by
+ * the operating system; call {@link #flush()} to force them to disk, e.g. before shutting down the machine. Entries
+ * do not expire: contexts have to be deleted explicitly. A directory can only be used by one store at a time, which is
+ * enforced by a file lock: {@link #close()} a store before opening its directory again.
+ * <p>
+ * Java offers no way to unmap a file: a segment file stays mapped until its buffer is garbage collected, also after
+ * compaction deleted it or the store was closed. On platforms that refuse to delete mapped files (e.g. Windows), the
+ * records of a released segment are invalidated first, so a segment file left behind is restored as empty.
+ */
+public class MappedFileStore extends AbstractLogStore implements AutoCloseable {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{8})\\.log");
+    private static final String LOCK_FILE = "store.lock";
+    private static final Set<Path> LOCKED_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    private final Path directory;
+    private final FileLock directoryLock;
+
+    private MappedFileStore(Builder builder, MappedSegmentStorage storage, FileLock directoryLock) {
+        super(
+            new RecordLog(builder.segmentSize, (int) Math.max(2, builder.maximumSize / builder.segmentSize), storage),
+            builder.hotSetSize,
+            true
+        );
+        this.directory = builder.directory;
+        this.directoryLock = directoryLock;
+        storage.restore(log);
+        restoreIndex();
+    }
+
+    /**
+     * @throws IllegalStateException if another store (of this or another process) uses the directory.
+     */
+    private static FileLock lockDirectory(Path directory) {
+        var key = directory.toAbsolutePath().normalize();
+        // closing any channel of a locked file may release the lock of the whole JVM, so stores of this JVM are checked first
+        if (!LOCKED_DIRECTORIES.add(key)) {
+            throw new IllegalStateException("directory is used by another store: " + directory);
+        }
+        try {
+            var channel = FileChannel.open(key.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            var lock = channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                throw new IllegalStateException("directory is used by another process: " + directory);
+            }
+            return lock;
+        } catch (IOException ex) {
+            LOCKED_DIRECTORIES.remove(key);
+            throw new UncheckedIOException(ex);
+        } catch (RuntimeException ex) {
+            LOCKED_DIRECTORIES.remove(key);
+            throw ex;
+        }
+    }
+
+    private static void unlockDirectory(Path directory, FileLock lock) {
+        try {
+            lock.channel().close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            LOCKED_DIRECTORIES.remove(directory.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * @param directory Directory of the segment files. Created if it does not exist.
+     * @return Builder for a store using the given directory.
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    /**
+     * Forces all changes to disk.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            log.flush();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all changes to disk, closes the store and releases its directory. The store must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!directoryLock.isValid()) {
+                return;
+            }
+            log.flush();
+            log.detach();
+            unlockDirectory(directory, directoryLock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class MappedSegmentStorage implements RecordLog.SegmentStorage {
+        private final Path directory;
+        private final int segmentSize;
+
+        MappedSegmentStorage(Path directory, int segmentSize) {
+            this.directory = directory;
+            this.segmentSize = segmentSize;
+        }
+
+        private Path getSegmentFile(int segmentId) {
+            return directory.resolve(String.format("segment-%08d.log", segmentId));
+        }
+
+        void restore(RecordLog log) {
+            List<Integer> segmentIds;
+            try (var files = Files.list(directory)) {
+                segmentIds = files
+                    .map(it -> SEGMENT_FILE.matcher(it.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(it -> Integer.valueOf(it.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            for (var segmentId : segmentIds) {
+                var buffer = map(getSegmentFile(segmentId), false);
+                log.restoreSegment(segmentId, buffer, RecordLog.findWritePosition(buffer));
+            }
+        }
+
+        private MappedByteBuffer map(Path file, boolean create) {
+            var options = create
+                ? new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+            try (var channel = FileChannel.open(file, options)) {
+                var size = create ? segmentSize : channel.size();
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public ByteBuffer allocate(int segmentId, int size) {
+            return map(getSegmentFile(segmentId), true);
+        }
+
+        @Override
+        public void release(int segmentId, ByteBuffer buffer) {
+            // the file stays mapped until the buffer is garbage collected: invalidate its records in case it cannot be deleted
+            buffer.putInt(0, 0);
+            try {
+                Files.deleteIfExists(getSegmentFile(segmentId));
+            } catch (IOException ex) {
+                notifier().info(String.format("Mapped file store: segment %s not deleted, restored as empty: %s", getSegmentFile(segmentId), ex.getMessage()));
+            }
+        }
+
+        @Override
+        public void flush(int segmentId, ByteBuffer buffer) {
+            ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private long maximumSize = 1024L * 1024 * 1024;
+        private long hotSetSize = 10_000;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @param segmentSize Size of a segment file in bytes. Limits the size of a single context.
+         * @return this builder.
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize <= 0) {
+                throw new IllegalArgumentException("segmentSize must be positive");
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param maximumSize Maximum size of all segment files in bytes, including space not yet reclaimed from old versions.
+         * @return this builder.
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param hotSetSize Number of recently used contexts kept deserialized on the heap.
+         * @return this builder.
+         */
+        public Builder hotSetSize(long hotSetSize) {
+            if (hotSetSize < 0) {
+                throw new IllegalArgumentException("hotSetSize must not be negative");
+            }
+            this.hotSetSize = hotSetSize;
+            return this;
+        }
+
+        /**
+         * Opens the store, restoring all contexts of existing segment files.
+         *
+         * @return The store.
+         * @throws IllegalStateException if the directory is used by another store which is not closed yet.
+         */
+        public MappedFileStore build() {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            var directoryLock = lockDirectory(directory);
+            try {
+                return new MappedFileStore(this, new MappedSegmentStorage(directory, segmentSize), directoryLock);
+            } catch (RuntimeException ex) {
+                unlockDirectory(directory, directoryLock);
+                throw ex;
+            }
+        }
+    }
+}
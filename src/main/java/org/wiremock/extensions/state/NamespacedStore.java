@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+
+import java.util.stream.Stream;
+
+/**
+ * Store which partitions its keys by namespace, so a namespace can be enumerated without walking all keys.
+ * <p>
+ * The namespace of a key is the part in front of the first {@value #NAMESPACE_SEPARATOR}, e.g. `context` for
+ * `context:myContext`. Keys without separator belong to the empty namespace.
+ */
+public interface NamespacedStore extends Store<String, Object> {
+
+    String NAMESPACE_SEPARATOR = ":";
+
+    static String getNamespace(String key) {
+        var separatorIndex = key.indexOf(NAMESPACE_SEPARATOR);
+        return separatorIndex < 0 ? "" : key.substring(0, separatorIndex);
+    }
+
+    /**
+     * Streams all keys of a namespace.
+     * <p>
+     * The stream is weakly consistent: it does not operate on a copy and may or may not reflect modifications
+     * happening while it is consumed.
+     *
+     * @param namespace The namespace to enumerate.
+     * @return Stream of the full keys (including namespace) of the namespace.
+     */
+    Stream<String> getKeys(String namespace);
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.wiremock.extensions.state.internal.storage.AbstractLogStore;
+import org.wiremock.extensions.state.internal.storage.RecordLog;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Store keeping contexts serialized in off-heap memory.
+ * <p>
+ * Contexts are encoded in a compact binary format and appended to direct byte buffers, so millions of contexts do not
+ * add to the work of the garbage collector. Only keys, their addresses and a bounded set of recently used contexts are
+ * kept on the heap. Values other than contexts are kept on the heap as they are.
+ * <p>
+ * Off-heap memory is limited by the JVM's maximum direct memory (`-XX:MaxDirectMemorySize`). Entries do not expire:
+ * contexts have to be deleted explicitly.
+ * <p>
+ * Buffers released by compaction or {@link #clear()} are not freed immediately: direct memory is only returned once
+ * the garbage collector collects the buffer. The JVM triggers a collection when direct memory runs out, unless explicit
+ * garbage collection is disabled (`-XX:+DisableExplicitGC`). Until then, released buffers still count towards the
+ * maximum direct memory.
+ */
+public class OffHeapStore extends AbstractLogStore {
+
+    public OffHeapStore() {
+        this(builder());
+    }
+
+    private OffHeapStore(Builder builder) {
+        super(
+            new RecordLog(builder.segmentSize, (int) Math.max(2, builder.maximumSize / builder.segmentSize), new DirectSegmentStorage()),
+            builder.hotSetSize,
+            false
+        );
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final class DirectSegmentStorage implements RecordLog.SegmentStorage {
+        @Override
+        public ByteBuffer allocate(int segmentId, int size) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        @Override
+        public void release(int segmentId, ByteBuffer buffer) {
+            // there is no public API to free a direct buffer: its memory is freed once it is garbage collected
+        }
+    }
+
+    public static class Builder {
+        private int segmentSize = 64 * 1024 * 1024;
+        private long maximumSize = 1024L * 1024 * 1024;
+        private long hotSetSize = 10_000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param segmentSize Size of a single off-heap buffer in bytes. Limits the size of a single context.
+         * @return this builder.
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize <= 0) {
+                throw new IllegalArgumentException("segmentSize must be positive");
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * @param maximumSize Maximum off-heap memory in bytes, including space not yet reclaimed from old versions.
+         * @return this builder.
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("maximumSize must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param hotSetSize Number of recently used contexts kept deserialized on the heap.
+         * @return this builder.
+         */
+        public Builder hotSetSize(long hotSetSize) {
+            if (hotSetSize < 0) {
+                throw new IllegalArgumentException("hotSetSize must not be negative");
+            }
+            this.hotSetSize = hotSetSize;
+            return this;
+        }
+
+        public OffHeapStore build() {
+            return new OffHeapStore(this);
+        }
+    }
+}
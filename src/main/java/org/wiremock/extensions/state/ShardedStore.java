@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Store distributing its keys over a number of independent stores (shards).
+ * <p>
+ * Keys are assigned to shards by a consistent hash, so every shard has its own caches, eviction and - for stores
+ * with internal locks - its own locks. Scans over all contexts (e.g. deleting contexts by a pattern) are performed on
+ * all shards in parallel.
+ * <p>
+ * {@link #getStatistics()} sums up the statistics of all shards implementing {@link StatisticsStore}.
+ */
+public class ShardedStore implements NamespacedStore, StatisticsStore {
+
+    private final List<Store<String, Object>> shards;
+
+    /**
+     * @param shardCount   Number of shards.
+     * @param shardFactory Factory for the store of each shard.
+     */
+    public ShardedStore(int shardCount, Supplier<? extends Store<String, Object>> shardFactory) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount has to be positive");
+        }
+        var shards = new ArrayList<Store<String, Object>>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(shardFactory.get());
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * Jump consistent hash (Lamping, Veach): when the number of shards changes, only the keys of added or removed
+     * shards are moved.
+     */
+    static int getShardIndex(String key, int shardCount) {
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        long shard = -1;
+        long next = 0;
+        while (next < shardCount) {
+            shard = next;
+            hash = hash * 2862933555777941757L + 1;
+            next = (long) ((shard + 1) * ((double) (1L << 31) / (double) ((hash >>> 33) + 1)));
+        }
+        return (int) shard;
+    }
+
+    private Store<String, Object> getShard(String key) {
+        return shards.get(getShardIndex(key, shards.size()));
+    }
+
+    /**
+     * @return The stores of all shards.
+     */
+    public List<Store<String, Object>> getShards() {
+        return shards;
+    }
+
+    @Override
+    public Stream<String> getKeys(String namespace) {
+        return shards.stream().flatMap(shard -> {
+            if (shard instanceof NamespacedStore) {
+                return ((NamespacedStore) shard).getKeys(namespace);
+            } else {
+                return shard.getAllKeys().filter(it -> NamespacedStore.getNamespace(it).equals(namespace));
+            }
+        });
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return shards.stream().flatMap(Store::getAllKeys);
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        return getShard(key).get(key);
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        getShard(key).put(key, content);
+    }
+
+    @Override
+    public void remove(String key) {
+        getShard(key).remove(key);
+    }
+
+    @Override
+    public StoreStatistics getStatistics() {
+        return shards.parallelStream()
+            .filter(StatisticsStore.class::isInstance)
+            .map(it -> ((StatisticsStore) it).getStatistics())
+            .reduce(StoreStatistics.EMPTY, StoreStatistics::plus);
+    }
+
+    @Override
+    public void clear() {
+        shards.parallelStream().forEach(Store::clear);
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.storage.ContextCodec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Store keeping every context in a file of its own, so several WireMock instances (JVMs) can share a directory.
+ * <p>
+ * Writes lock the key by an OS-level file lock and replace the file atomically, so readers never see partial writes
+ * and concurrent writers on different instances do not overwrite each other's updates (see {@link VersionedStore}).
+ * The directory has to be on a file system supporting file locks and atomic moves, e.g. a local file system shared by
+ * several processes on the same host.
+ * <p>
+ * Only contexts can be stored. Removed contexts leave a small file behind which keeps their version. Entries do not
+ * expire: contexts have to be deleted explicitly.
+ */
+public class SharedDirectoryStore implements VersionedStore {
+
+    private static final String DATA_SUFFIX = ".ctx";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int JVM_LOCK_STRIPES = 64;
+    /**
+     * File locks are held per JVM, so threads (and stores) of the same JVM are serialized in addition.
+     */
+    private static final ReentrantLock[] JVM_LOCKS = new ReentrantLock[JVM_LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < JVM_LOCK_STRIPES; i++) {
+            JVM_LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private final Path directory;
+
+    /**
+     * @param directory Directory of the context files. Created if it does not exist.
+     */
+    public SharedDirectoryStore(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public Optional<Versioned> getVersioned(String key) {
+        return read(getFile(key, DATA_SUFFIX)).filter(Record::isPresent).map(it -> new Versioned(it.context, it.version));
+    }
+
+    @Override
+    public boolean compareAndSet(String key, long expectedVersion, Object newValue) {
+        var context = toContext(newValue);
+        return withLock(key, () -> {
+            var file = getFile(key, DATA_SUFFIX);
+            var current = read(file);
+            var currentVersion = current.filter(Record::isPresent).map(it -> it.version).orElse(NO_VERSION);
+            if (currentVersion != expectedVersion) {
+                return false;
+            }
+            write(key, file, current.map(it -> it.version).orElse(NO_VERSION) + 1, context);
+            return true;
+        });
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return listDataFiles().stream()
+            .map(this::readHeader)
+            .flatMap(Optional::stream)
+            .filter(Record::isPresent)
+            .map(it -> it.key);
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        return getVersioned(key).map(Versioned::getValue);
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        var context = toContext(content);
+        withLock(key, () -> {
+            var file = getFile(key, DATA_SUFFIX);
+            write(key, file, read(file).map(it -> it.version).orElse(NO_VERSION) + 1, context);
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(String key) {
+        withLock(key, () -> {
+            var file = getFile(key, DATA_SUFFIX);
+            read(file).filter(Record::isPresent).ifPresent(it -> write(key, file, it.version + 1, null));
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        getAllKeys().collect(Collectors.toList()).forEach(this::remove);
+    }
+
+    private static Context toContext(Object value) {
+        if (value != null && !(value instanceof Context)) {
+            throw new IllegalArgumentException("only contexts can be stored: " + value.getClass().getName());
+        }
+        return (Context) value;
+    }
+
+    private <T> T withLock(String key, Supplier<T> action) {
+        var lockFile = getFile(key, LOCK_SUFFIX);
+        var jvmLock = JVM_LOCKS[Math.floorMod(lockFile.toString().hashCode(), JVM_LOCK_STRIPES)];
+        jvmLock.lock();
+        try (
+            var channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            var ignored = channel.lock()
+        ) {
+            return action.get();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+
+    private List<Path> listDataFiles() {
+        try (var files = Files.list(directory)) {
+            return files.filter(it -> it.getFileName().toString().endsWith(DATA_SUFFIX)).collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Optional<Record> read(Path file) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        var version = buffer.getLong();
+        var keyBytes = new byte[buffer.getInt()];
+        buffer.get(keyBytes);
+        var context = buffer.get() == 0 ? null : ContextCodec.decode(buffer);
+        return Optional.of(new Record(new String(keyBytes, StandardCharsets.UTF_8), version, context != null, context));
+    }
+
+    /**
+     * Reads a record without its context, so listing keys does not read and decode the contexts.
+     */
+    private Optional<Record> readHeader(Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var header = readFully(channel, Long.BYTES + Integer.BYTES);
+            var version = header.getLong();
+            var keyAndFlag = readFully(channel, header.getInt() + 1);
+            var keyBytes = new byte[keyAndFlag.remaining() - 1];
+            keyAndFlag.get(keyBytes);
+            var present = keyAndFlag.get() != 0;
+            return Optional.of(new Record(new String(keyBytes, StandardCharsets.UTF_8), version, present, null));
+        } catch (NoSuchFileException ex) {
+            return Optional.empty();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("truncated record");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes a record to a temporary file and moves it in place. Has to be called with the key's lock held.
+     */
+    private void write(String key, Path file, long version, Context context) {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var contextBytes = context == null ? new byte[0] : ContextCodec.encode(context);
+        var buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + keyBytes.length + 1 + contextBytes.length)
+            .putLong(version)
+            .putInt(keyBytes.length)
+            .put(keyBytes)
+            .put((byte) (context == null ? 0 : 1))
+            .put(contextBytes);
+        var tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try {
+            Files.write(tempFile, buffer.array());
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Keys are hashed for the file names, so any key results in a valid file name of limited length.
+     */
+    private Path getFile(String key, String suffix) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            var name = new StringBuilder(digest.length * 2 + suffix.length());
+            for (var b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return directory.resolve(name.append(suffix).toString());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Record {
+        private final String key;
+        private final long version;
+        private final boolean present;
+        private final Context context;
+
+        /**
+         * @param context The context - or `null` if removed or not read.
+         */
+        Record(String key, long version, boolean present, Context context) {
+            this.key = key;
+            this.version = version;
+            this.present = present;
+            this.context = context;
+        }
+
+        boolean isPresent() {
+            return present;
+        }
+    }
+}
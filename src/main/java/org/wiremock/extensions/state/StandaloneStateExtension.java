@@ -18,13 +18,27 @@ package org.wiremock.extensions.state;
 /**
  * Factory to register all extensions for handling state for standalone service.
  * <p>
- * Uses {@link org.wiremock.extensions.state.CaffeineStore} as store.
+ * Uses {@link org.wiremock.extensions.state.CaffeineStore} as store. With the system property
+ * {@value #SHARDS_PROPERTY} set to a number greater than `1`, contexts are distributed over that number of
+ * {@link CaffeineStore}s. The system property {@value #SHORT_CIRCUIT_MATCHING_PROPERTY} set to `true` enables
+ * short-circuit evaluation of the request matcher.
  *
  * @see CaffeineStore
+ * @see ShardedStore
  */
 public class StandaloneStateExtension extends StateExtension {
 
+    public static final String SHARDS_PROPERTY = "wiremock.state.shards";
+    public static final String SHORT_CIRCUIT_MATCHING_PROPERTY = "wiremock.state.shortCircuitMatching";
+
     public StandaloneStateExtension() {
-        super(new CaffeineStore());
+        super(createStore(Integer.getInteger(SHARDS_PROPERTY, 1)), Boolean.getBoolean(SHORT_CIRCUIT_MATCHING_PROPERTY));
+    }
+
+    private static NamespacedStore createStore(int shards) {
+        if (shards > 1) {
+            return new ShardedStore(shards, CaffeineStore::new);
+        }
+        return new CaffeineStore();
     }
 }
@@ -18,13 +18,18 @@ package org.wiremock.extensions.state;
 import com.github.tomakehurst.wiremock.extension.Extension;
 import com.github.tomakehurst.wiremock.extension.ExtensionFactory;
 import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.standalone.CommandLineOptions;
 import com.github.tomakehurst.wiremock.store.Store;
 import org.wiremock.extensions.state.extensions.DeleteStateEventListener;
 import org.wiremock.extensions.state.extensions.RecordStateEventListener;
+import org.wiremock.extensions.state.extensions.RequestScopeFilter;
 import org.wiremock.extensions.state.extensions.StateRequestMatcher;
+import org.wiremock.extensions.state.extensions.StateStatisticsAdminApiExtension;
 import org.wiremock.extensions.state.extensions.StateTemplateHelperProviderExtension;
 import org.wiremock.extensions.state.extensions.TransactionEventListener;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.TransactionManager;
 
 import java.util.List;
@@ -50,27 +55,78 @@ import java.util.List;
 public class StateExtension implements ExtensionFactory {
 
     private final Store<String, Object> store;
+    private final boolean shortCircuitMatching;
+    private final Boolean verbose;
+    private volatile StateStatisticsAdminApiExtension statistics;
 
     public StateExtension(Store<String, Object> store) {
+        this(store, false);
+    }
+
+    /**
+     * @param store                The store to keep the contexts in.
+     * @param shortCircuitMatching Whether the request matcher stops evaluating at the first matcher that does not match.
+     *                             Speeds up stub selection but reduces the detail of near-miss reports.
+     */
+    public StateExtension(Store<String, Object> store, boolean shortCircuitMatching) {
+        this(store, shortCircuitMatching, null);
+    }
+
+    /**
+     * @param store                The store to keep the contexts in.
+     * @param shortCircuitMatching Whether the request matcher stops evaluating at the first matcher that does not match.
+     *                             Speeds up stub selection but reduces the detail of near-miss reports.
+     * @param verbose              Whether actions are logged on info level. Applies to this instance only. If `null`,
+     *                             the `--verbose` flag of standalone WireMock or the system property
+     *                             `wiremock.state.verbose` is used.
+     */
+    public StateExtension(Store<String, Object> store, boolean shortCircuitMatching, Boolean verbose) {
         this.store = store;
+        this.shortCircuitMatching = shortCircuitMatching;
+        this.verbose = verbose;
+    }
+
+    /**
+     * Statistics of the state, also available at `GET /__admin/state/statistics`.
+     *
+     * @return Statistics of the store and the extension.
+     */
+    public StateStatistics getStatistics() {
+        var current = statistics;
+        return current == null ? StateStatistics.of(store, 0, 0, 0) : current.getStatistics();
+    }
+
+    private boolean isVerbose(WireMockServices services) {
+        if (verbose != null) {
+            return verbose;
+        }
+        if (services.getOptions() instanceof CommandLineOptions) {
+            return ((CommandLineOptions) services.getOptions()).verboseLoggingEnabled();
+        }
+        return ExtensionLogger.isVerboseByDefault();
     }
 
     @Override
     public List<Extension> create(WireMockServices services) {
-        var transactionManager = new TransactionManager(store);
-        var contextManager = new ContextManager(store, transactionManager);
+        var transactionManager = new TransactionManager();
+        var contextManager = new ContextManager(store, transactionManager, new ExtensionLogger(isVerbose(services)));
+        var templateRenderer = new TemplateRenderer(services);
         var stateTemplateHelperProviderExtension = new StateTemplateHelperProviderExtension(contextManager);
-        var recordStateEventListener = new RecordStateEventListener(contextManager, services);
-        var deleteStateEventListener = new DeleteStateEventListener(contextManager, services);
-        var transactionEventListener = new TransactionEventListener(transactionManager);
-        var stateRequestMatcher = new StateRequestMatcher(contextManager, services);
+        var recordStateEventListener = new RecordStateEventListener(contextManager, services, templateRenderer);
+        var deleteStateEventListener = new DeleteStateEventListener(contextManager, services, templateRenderer);
+        var transactionEventListener = new TransactionEventListener(transactionManager, contextManager);
+        var requestScopeFilter = new RequestScopeFilter(contextManager);
+        var stateRequestMatcher = new StateRequestMatcher(contextManager, services, templateRenderer, shortCircuitMatching);
+        statistics = new StateStatisticsAdminApiExtension(store, transactionManager, templateRenderer);
 
         return List.of(
             recordStateEventListener,
             deleteStateEventListener,
             transactionEventListener,
+            requestScopeFilter,
             stateRequestMatcher,
-            stateTemplateHelperProviderExtension
+            stateTemplateHelperProviderExtension,
+            statistics
         );
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+
+/**
+ * Snapshot of the state handled by a {@link StateExtension}.
+ */
+public final class StateStatistics {
+
+    private final StoreStatistics store;
+    private final long transactionCount;
+    private final long templateHitCount;
+    private final long templateMissCount;
+
+    public StateStatistics(StoreStatistics store, long transactionCount, long templateHitCount, long templateMissCount) {
+        this.store = store;
+        this.transactionCount = transactionCount;
+        this.templateHitCount = templateHitCount;
+        this.templateMissCount = templateMissCount;
+    }
+
+    /**
+     * @param store             Store to collect the statistics of.
+     * @param transactionCount  Number of contexts touched by open requests.
+     * @param templateHitCount  Number of templates taken from the compiled template cache.
+     * @param templateMissCount Number of templates compiled because they were not cached.
+     * @return Statistics of the store and the extension.
+     */
+    public static StateStatistics of(Store<String, Object> store, long transactionCount, long templateHitCount, long templateMissCount) {
+        var storeStatistics = store instanceof StatisticsStore ? ((StatisticsStore) store).getStatistics() : null;
+        return new StateStatistics(storeStatistics, transactionCount, templateHitCount, templateMissCount);
+    }
+
+    /**
+     * @return Statistics of the store - or `null` if the store does not implement {@link StatisticsStore}.
+     */
+    public StoreStatistics getStore() {
+        return store;
+    }
+
+    /**
+     * @return Number of contexts touched by requests which are not completed yet.
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * @return Number of templates of extension parameters taken from the compiled template cache.
+     */
+    public long getTemplateHitCount() {
+        return templateHitCount;
+    }
+
+    /**
+     * @return Number of templates of extension parameters compiled because they were not cached.
+     */
+    public long getTemplateMissCount() {
+        return templateMissCount;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+
+/**
+ * Store reporting its size and usage.
+ *
+ * @see StoreStatistics
+ */
+public interface StatisticsStore extends Store<String, Object> {
+
+    /**
+     * Collects the current statistics. Depending on the store, this may have to visit all entries.
+     *
+     * @return Snapshot of the statistics.
+     */
+    StoreStatistics getStatistics();
+}
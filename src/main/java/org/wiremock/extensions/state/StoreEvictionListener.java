@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+/**
+ * Listener for entries a store removed on its own, e.g. because they expired.
+ * <p>
+ * Listeners are called asynchronously and must be thread-safe.
+ *
+ * @see CaffeineStore.Builder#evictionListener(StoreEvictionListener)
+ */
+@FunctionalInterface
+public interface StoreEvictionListener {
+
+    /**
+     * @param key   The key of the removed entry.
+     * @param value The removed value - or `null` if it was garbage collected already.
+     * @param cause The reason of the removal.
+     */
+    void onEviction(String key, Object value, Cause cause);
+
+    enum Cause {
+        /**
+         * The entry exceeded its time to live.
+         */
+        EXPIRED,
+        /**
+         * The entry was removed to stay within the maximum size of the store.
+         */
+        SIZE,
+        /**
+         * The entry was garbage collected.
+         */
+        COLLECTED
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+/**
+ * Snapshot of the size and usage of a store.
+ * <p>
+ * Hit, miss, load and eviction counts are cumulative since the store was created and only recorded if the store is
+ * configured to do so (see {@link CaffeineStore.Builder#recordStats(boolean)}). Otherwise, they are `0`.
+ */
+public final class StoreStatistics {
+
+    public static final StoreStatistics EMPTY = builder().build();
+
+    private final long entryCount;
+    private final long contextCount;
+    private final long estimatedBytes;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    private StoreStatistics(Builder builder) {
+        this.entryCount = builder.entryCount;
+        this.contextCount = builder.contextCount;
+        this.estimatedBytes = builder.estimatedBytes;
+        this.hitCount = builder.hitCount;
+        this.missCount = builder.missCount;
+        this.loadCount = builder.loadCount;
+        this.evictionCount = builder.evictionCount;
+        this.evictionWeight = builder.evictionWeight;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return Number of all entries, including contexts.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getContextCount() {
+        return contextCount;
+    }
+
+    /**
+     * @return Estimated number of bytes occupied by the entries (see {@link org.wiremock.extensions.state.internal.ContextWeigher}).
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return Ratio of reads finding an entry, `1.0` if nothing has been read (yet).
+     */
+    public double getHitRate() {
+        var requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * @return Number of entries evicted due to expiration or size limits.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return Estimated number of bytes of the evicted entries - if the store has a maximum weight.
+     */
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    /**
+     * @param other Statistics to add, e.g. of another shard.
+     * @return Sum of both statistics.
+     */
+    public StoreStatistics plus(StoreStatistics other) {
+        return builder()
+            .entryCount(entryCount + other.entryCount)
+            .contextCount(contextCount + other.contextCount)
+            .estimatedBytes(estimatedBytes + other.estimatedBytes)
+            .hitCount(hitCount + other.hitCount)
+            .missCount(missCount + other.missCount)
+            .loadCount(loadCount + other.loadCount)
+            .evictionCount(evictionCount + other.evictionCount)
+            .evictionWeight(evictionWeight + other.evictionWeight)
+            .build();
+    }
+
+    @Override
+    public String toString() {
+        return "StoreStatistics{" +
+            "entryCount=" + entryCount +
+            ", contextCount=" + contextCount +
+            ", estimatedBytes=" + estimatedBytes +
+            ", hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", loadCount=" + loadCount +
+            ", evictionCount=" + evictionCount +
+            ", evictionWeight=" + evictionWeight +
+            '}';
+    }
+
+    public static class Builder {
+        private long entryCount;
+        private long contextCount;
+        private long estimatedBytes;
+        private long hitCount;
+        private long missCount;
+        private long loadCount;
+        private long evictionCount;
+        private long evictionWeight;
+
+        private Builder() {
+        }
+
+        public Builder entryCount(long entryCount) {
+            this.entryCount = entryCount;
+            return this;
+        }
+
+        public Builder contextCount(long contextCount) {
+            this.contextCount = contextCount;
+            return this;
+        }
+
+        public Builder estimatedBytes(long estimatedBytes) {
+            this.estimatedBytes = estimatedBytes;
+            return this;
+        }
+
+        public Builder hitCount(long hitCount) {
+            this.hitCount = hitCount;
+            return this;
+        }
+
+        public Builder missCount(long missCount) {
+            this.missCount = missCount;
+            return this;
+        }
+
+        public Builder loadCount(long loadCount) {
+            this.loadCount = loadCount;
+            return this;
+        }
+
+        public Builder evictionCount(long evictionCount) {
+            this.evictionCount = evictionCount;
+            return this;
+        }
+
+        public Builder evictionWeight(long evictionWeight) {
+            this.evictionWeight = evictionWeight;
+            return this;
+        }
+
+        public StoreStatistics build() {
+            return new StoreStatistics(this);
+        }
+    }
+}
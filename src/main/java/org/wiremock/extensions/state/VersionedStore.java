@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.store.Store;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Store supporting optimistic concurrency: every value carries a version which changes with every write.
+ * <p>
+ * Writers read the current version, compute the new value and only write it if the version did not change in the
+ * meantime (see {@link #compareAndSet(String, long, Object)}). Otherwise they retry with the new value. This keeps
+ * updates atomic without holding a lock, also when several WireMock instances share a store.
+ * <p>
+ * Versions are assigned by the store and never reused for a key, also not after a removal.
+ * {@link org.wiremock.extensions.state.internal.model.Context#getUpdateCount()} is not suitable as version, as it only
+ * changes on the first write of a request.
+ */
+public interface VersionedStore extends Store<String, Object> {
+
+    /**
+     * Version expected for a key without value.
+     */
+    long NO_VERSION = 0L;
+
+    /**
+     * @param key Key to search for.
+     * @return Optional with the current value and its version - or empty.
+     */
+    Optional<Versioned> getVersioned(String key);
+
+    /**
+     * Writes a value if the current version of the key matches the expected one.
+     *
+     * @param key             Key to write.
+     * @param expectedVersion Version read before, {@link #NO_VERSION} if there was no value.
+     * @param newValue        New value - or `null` to remove the key.
+     * @return `true` if the value was written, `false` if the version did not match.
+     */
+    boolean compareAndSet(String key, long expectedVersion, Object newValue);
+
+    /**
+     * Updates a value by optimistic retries.
+     * <p>
+     * The update function may be called several times and should therefore not have side effects.
+     *
+     * @param key    Key to update.
+     * @param update Function creating the new value from the current one (`null` if absent). Returning `null`
+     *               removes the key.
+     * @return The value written.
+     */
+    default Object compute(String key, UnaryOperator<Object> update) {
+        while (true) {
+            var current = getVersioned(key);
+            var newValue = update.apply(current.map(Versioned::getValue).orElse(null));
+            if (compareAndSet(key, current.map(Versioned::getVersion).orElse(NO_VERSION), newValue)) {
+                return newValue;
+            }
+        }
+    }
+
+    /**
+     * Value along with its version.
+     */
+    final class Versioned {
+        private final Object value;
+        private final long version;
+
+        public Versioned(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.storage.WriteAheadLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
+
+/**
+ * In-memory store recording all context changes in a write-ahead log, so contexts survive a restart.
+ * <p>
+ * Changes are applied in memory and queued. A background thread appends queued changes to the log and forces them to
+ * disk, one batch at a time, so requests never wait for the disk. Changes not yet written are lost on a crash.
+ * Periodically, the background thread writes a snapshot of all contexts and deletes older logs. On start, the latest
+ * snapshot and all later logs are replayed.
+ * <p>
+ * If writing fails, the log may end in a partially written batch and misses the changes of the failed batch. The
+ * background thread then writes a snapshot of all contexts before appending further changes, retrying until it
+ * succeeds, so a recovery never sees an inconsistent state.
+ * <p>
+ * Only contexts are persisted, other values are kept in memory only. Entries do not expire. Call {@link #close()} to
+ * write all pending changes.
+ */
+public class WriteAheadLogStore implements NamespacedStore, AutoCloseable {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Object>> namespaces = new ConcurrentHashMap<>();
+    private final BlockingQueue<WriteAheadLog.Entry> pending = new LinkedBlockingQueue<>();
+    // changes hold the read lock, so the write lock marks a point in time at which all queued changes are applied
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteAheadLog log;
+    private final long snapshotIntervalNanos;
+    private final int maximumBatchSize;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // only accessed by the writer thread
+    private boolean snapshotRequired;
+
+    private WriteAheadLogStore(Builder builder) {
+        this.snapshotIntervalNanos = builder.snapshotInterval.toNanos();
+        this.maximumBatchSize = builder.maximumBatchSize;
+        try {
+            this.log = new WriteAheadLog(builder.directory);
+            log.recover(new WriteAheadLog.Visitor() {
+                @Override
+                public void put(String key, Context context) {
+                    getNamespace(key).put(key, context);
+                }
+
+                @Override
+                public void remove(String key) {
+                    Optional.ofNullable(namespaces.get(NamespacedStore.getNamespace(key))).ifPresent(it -> it.remove(key));
+                }
+
+                @Override
+                public void clear() {
+                    namespaces.clear();
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        this.writer = new Thread(this::writeChanges, "wiremock-state-write-ahead-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @param directory Directory of logs and snapshots. Created if it does not exist.
+     * @return Builder for a store using the given directory.
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    private ConcurrentMap<String, Object> getNamespace(String key) {
+        return namespaces.computeIfAbsent(NamespacedStore.getNamespace(key), (it) -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return namespaces.values().stream().flatMap(it -> it.keySet().stream());
+    }
+
+    @Override
+    public Stream<String> getKeys(String namespace) {
+        return Optional.ofNullable(namespaces.get(namespace))
+            .map(it -> it.keySet().stream())
+            .orElseGet(Stream::empty);
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        return Optional.ofNullable(namespaces.get(NamespacedStore.getNamespace(key))).map(it -> it.get(key));
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        lock.readLock().lock();
+        try {
+            // changes of a key are queued while holding its map entry, so the log keeps their order
+            getNamespace(key).compute(key, (k, previous) -> {
+                if (content instanceof Context) {
+                    pending.add(new WriteAheadLog.Entry(WriteAheadLog.TYPE_PUT, key, (Context) content));
+                } else if (previous instanceof Context) {
+                    pending.add(new WriteAheadLog.Entry(WriteAheadLog.TYPE_REMOVE, key, null));
+                }
+                return content;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        lock.readLock().lock();
+        try {
+            Optional.ofNullable(namespaces.get(NamespacedStore.getNamespace(key)))
+                .ifPresent(namespace -> namespace.computeIfPresent(key, (k, previous) -> {
+                    if (previous instanceof Context) {
+                        pending.add(new WriteAheadLog.Entry(WriteAheadLog.TYPE_REMOVE, key, null));
+                    }
+                    return null;
+                }));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            namespaces.clear();
+            pending.add(new WriteAheadLog.Entry(WriteAheadLog.TYPE_CLEAR, null, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Stream<Map.Entry<String, Context>> getContexts() {
+        return namespaces.values()
+            .stream()
+            .flatMap(it -> it.entrySet().stream())
+            .filter(it -> it.getValue() instanceof Context)
+            .map(it -> Map.entry(it.getKey(), (Context) it.getValue()));
+    }
+
+    private void writeChanges() {
+        var batch = new ArrayList<WriteAheadLog.Entry>();
+        var nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+        var changedSinceSnapshot = false;
+        var interrupted = false;
+        while (running || !pending.isEmpty() || snapshotRequired) {
+            try {
+                if (snapshotRequired) {
+                    // all changes queued so far are applied in memory and thus part of the snapshot
+                    pending.clear();
+                    writeSnapshot();
+                    snapshotRequired = false;
+                    changedSinceSnapshot = false;
+                    nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+                    notifier().info("Write-ahead log: persisted all contexts after a failed write");
+                    continue;
+                }
+                // after an interruption, only the changes already queued are written
+                var first = interrupted ? pending.poll() : pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch, maximumBatchSize - 1);
+                    log.append(batch);
+                    batch.clear();
+                    changedSinceSnapshot = true;
+                }
+                if (changedSinceSnapshot && System.nanoTime() - nextSnapshot >= 0) {
+                    writeSnapshot();
+                    changedSinceSnapshot = false;
+                    nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                running = false;
+            } catch (IOException | RuntimeException ex) {
+                batch.clear();
+                if (!running && snapshotRequired) {
+                    notifier().error("Write-ahead log: failed to persist changes on close, changes since the last successful write are lost: " + ex.getMessage(), ex);
+                    break;
+                }
+                notifier().error("Write-ahead log: failed to persist changes, retrying with a snapshot: " + ex.getMessage(), ex);
+                snapshotRequired = true;
+                interrupted |= awaitRetry();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean awaitRetry() {
+        if (!running) {
+            return false;
+        }
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+            return false;
+        } catch (InterruptedException ex) {
+            running = false;
+            return true;
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long logId;
+        lock.writeLock().lock();
+        try {
+            logId = log.roll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.writeSnapshot(logId, getContexts());
+    }
+
+    /**
+     * Writes all pending changes and stops the background thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+            log.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+        private int maximumBatchSize = 1000;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @param snapshotInterval Minimum time between two snapshots. Snapshots are only written after changes.
+         * @return this builder.
+         */
+        public Builder snapshotInterval(Duration snapshotInterval) {
+            if (snapshotInterval.isNegative() || snapshotInterval.isZero()) {
+                throw new IllegalArgumentException("snapshotInterval must be positive");
+            }
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        /**
+         * @param maximumBatchSize Maximum number of changes written to disk at once.
+         * @return this builder.
+         */
+        public Builder maximumBatchSize(int maximumBatchSize) {
+            if (maximumBatchSize < 1) {
+                throw new IllegalArgumentException("maximumBatchSize must be positive");
+            }
+            this.maximumBatchSize = maximumBatchSize;
+            return this;
+        }
+
+        /**
+         * Opens the store, restoring the contexts of existing snapshots and logs.
+         *
+         * @return The store.
+         */
+        public WriteAheadLogStore build() {
+            return new WriteAheadLogStore(this);
+        }
+    }
+}
@@ -23,8 +23,12 @@ import com.github.tomakehurst.wiremock.extension.WireMockServices;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
+import org.wiremock.extensions.state.internal.CompiledTemplate;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.api.DeleteStateParameters;
 import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
 
@@ -32,13 +36,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
-
 /**
  * Event listener to trigger state context deletion.
  * <p>
@@ -50,11 +52,15 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
 
     private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final ExtensionLogger logger;
+    private final TemplateRenderer templateRenderer;
+    private final ParametersCache<Plan> plans = new ParametersCache<>(this::createPlan);
 
-
-    public DeleteStateEventListener(ContextManager contextManager, WireMockServices services) {
+    public DeleteStateEventListener(ContextManager contextManager, WireMockServices services, TemplateRenderer templateRenderer) {
         this.contextManager = contextManager;
+        this.logger = contextManager.getLogger();
         this.wireMockServices = services;
+        this.templateRenderer = templateRenderer;
     }
 
     @Override
@@ -68,50 +74,158 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
+        new ListenerInstance(serveEvent.getId().toString(), () -> buildModel(serveEvent), plans.get(parameters)).run();
+    }
+
+    private Map<String, Object> buildModel(ServeEvent serveEvent) {
         final Map<String, Object> model = new HashMap<>();
         model.putAll(wireMockServices.getTemplateEngine().buildModelForRequest(serveEvent));
         model.put("response", ResponseTemplateModel.from(serveEvent.getResponse()));
+        return model;
+    }
+
+    private Plan createPlan(Parameters parameters) {
         var configuration = Json.mapToObject(parameters, DeleteStateParameters.class);
-        new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
+        var listConfig = configuration.getList();
+        if (listConfig != null) {
+            return new Plan(compileContext(configuration.getContext()), null, null, null, createListAction(listConfig));
+        } else if (configuration.getContext() != null) {
+            return new Plan(compileContext(configuration.getContext()), null, null, null, null);
+        } else if (configuration.getContexts() != null) {
+            var contexts = configuration.getContexts().stream().map(templateRenderer::compile).collect(Collectors.toList());
+            return new Plan(null, contexts, null, null, null);
+        } else if (configuration.getContextsMatching() != null) {
+            var contextsMatching = templateRenderer.compile(configuration.getContextsMatching());
+            var pattern = contextsMatching.isLiteral() ? compilePattern(contextsMatching.render(() -> null)) : null;
+            return new Plan(null, null, contextsMatching, pattern, null);
+        } else {
+            throw createConfigurationError("Missing/invalid configuration for context deletion");
+        }
     }
 
-    private String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+    private CompiledTemplate compileContext(String context) {
+        if (StringUtils.isBlank(context)) {
+            throw new ConfigurationException("No context specified");
+        }
+        return templateRenderer.compile(context);
+    }
+
+    private Pattern compilePattern(String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (PatternSyntaxException ex) {
+            throw createConfigurationError("Missing/invalid configuration for context deletion: %s", ex.getMessage());
+        }
+    }
+
+    private ListAction createListAction(DeleteStateParameters.ListParameters listConfig) {
+        if (Boolean.TRUE.equals(listConfig.getDeleteFirst())) {
+            return new ListAction(ListActionType.DELETE_FIRST, null, null, null, null);
+        } else if (Boolean.TRUE.equals(listConfig.getDeleteLast())) {
+            return new ListAction(ListActionType.DELETE_LAST, null, null, null, null);
+        } else if (StringUtils.isNotBlank(listConfig.getDeleteIndex())) {
+            return new ListAction(ListActionType.DELETE_INDEX, listConfig.getDeleteIndex(), templateRenderer.compile(listConfig.getDeleteIndex()), null, null);
+        } else if (listConfig.getDeleteWhere() != null &&
+            listConfig.getDeleteWhere().getProperty() != null &&
+            listConfig.getDeleteWhere().getValue() != null
+        ) {
+            return new ListAction(
+                ListActionType.DELETE_WHERE,
+                null,
+                null,
+                templateRenderer.compile(listConfig.getDeleteWhere().getProperty()),
+                templateRenderer.compile(listConfig.getDeleteWhere().getValue())
+            );
+        } else {
+            throw createConfigurationError("Missing/invalid configuration for list entry deletion");
+        }
+    }
+
+    private enum ListActionType {
+        DELETE_FIRST, DELETE_LAST, DELETE_INDEX, DELETE_WHERE
+    }
+
+    /**
+     * Configuration of a stub mapping, interpreted once and shared by all requests of the stub mapping.
+     * <p>
+     * Either `listAction` (with `context`), `context`, `contexts` or `contextsMatching` is set. `contextsMatchingPattern` is only
+     * set if `contextsMatching` does not contain any template.
+     */
+    private static class Plan {
+        private final CompiledTemplate context;
+        private final List<CompiledTemplate> contexts;
+        private final CompiledTemplate contextsMatching;
+        private final Pattern contextsMatchingPattern;
+        private final ListAction listAction;
+
+        Plan(
+            CompiledTemplate context,
+            List<CompiledTemplate> contexts,
+            CompiledTemplate contextsMatching,
+            Pattern contextsMatchingPattern,
+            ListAction listAction
+        ) {
+            this.context = context;
+            this.contexts = contexts == null ? null : List.copyOf(contexts);
+            this.contextsMatching = contextsMatching;
+            this.contextsMatchingPattern = contextsMatchingPattern;
+            this.listAction = listAction;
+        }
+    }
+
+    private static class ListAction {
+        private final ListActionType type;
+        private final String rawIndex;
+        private final CompiledTemplate index;
+        private final CompiledTemplate whereProperty;
+        private final CompiledTemplate whereValue;
+
+        ListAction(ListActionType type, String rawIndex, CompiledTemplate index, CompiledTemplate whereProperty, CompiledTemplate whereValue) {
+            this.type = type;
+            this.rawIndex = rawIndex;
+            this.index = index;
+            this.whereProperty = whereProperty;
+            this.whereValue = whereValue;
+        }
     }
 
     private class ListenerInstance {
         private final String requestId;
-        private final DeleteStateParameters configuration;
-        private final Map<String, Object> model;
+        private final Plan plan;
+        private final Supplier<Map<String, Object>> modelFactory;
+        private final Supplier<Map<String, Object>> model = this::getModel;
+        private Map<String, Object> modelInstance;
 
-        ListenerInstance(String requestId, Map<String, Object> model, DeleteStateParameters configuration) {
+        ListenerInstance(String requestId, Supplier<Map<String, Object>> modelFactory, Plan plan) {
             this.requestId = requestId;
-            this.model = model;
-            this.configuration = configuration;
+            this.modelFactory = modelFactory;
+            this.plan = plan;
         }
 
-        public void run() {
-            Optional.ofNullable(configuration.getList()).ifPresentOrElse(
-                listConfig -> handleListDeletion(listConfig, createContextName(configuration.getContext())),
-                this::handleContextDeletion
-            );
+        private Map<String, Object> getModel() {
+            if (modelInstance == null) {
+                modelInstance = modelFactory.get();
+            }
+            return modelInstance;
         }
 
-        private void handleContextDeletion() {
-            if (configuration.getContext() != null) {
-                deleteContext(configuration.getContext());
-            } else if (configuration.getContexts() != null) {
-                deleteContexts(configuration.getContexts());
-            } else if (configuration.getContextsMatching() != null) {
-                deleteContextsMatching(configuration.getContextsMatching());
+        public void run() {
+            if (plan.listAction != null) {
+                handleListDeletion(plan.listAction, createContextName(plan.context));
+            } else if (plan.context != null) {
+                deleteContext(plan.context);
+            } else if (plan.contexts != null) {
+                deleteContexts(plan.contexts);
+            } else if (plan.contextsMatching != null) {
+                deleteContextsMatching(plan.contextsMatching, plan.contextsMatchingPattern);
             } else {
                 throw createConfigurationError("Missing/invalid configuration for context deletion");
             }
         }
 
-        private void deleteContexts(List<String> rawContexts) {
+        private void deleteContexts(List<CompiledTemplate> rawContexts) {
 
-            var contexts = rawContexts.stream().map(it -> renderTemplate(model, it)).collect(Collectors.toList());
+            var contexts = rawContexts.stream().map(it -> it.render(model)).collect(Collectors.toList());
             contextManager.onEach(requestId, context -> {
                 if (contexts.contains(context.getContextName())) {
                     contextManager.deleteContext(requestId, context.getContextName());
@@ -119,87 +233,77 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
             });
         }
 
-        private void deleteContextsMatching(String rawRegex) {
-            try {
-                var regex = renderTemplate(model, rawRegex);
-                var pattern = Pattern.compile(regex);
-                contextManager.onEach(requestId, context -> {
-                    if (pattern.matcher(context.getContextName()).matches()) {
-                        contextManager.deleteContext(requestId, context.getContextName());
-                    }
-                });
-            } catch (PatternSyntaxException ex) {
-                throw createConfigurationError("Missing/invalid configuration for context deletion: %s", ex.getMessage());
-            }
+        private void deleteContextsMatching(CompiledTemplate rawRegex, Pattern compiledPattern) {
+            var pattern = compiledPattern != null ? compiledPattern : compilePattern(rawRegex.render(model));
+            contextManager.onEach(requestId, context -> {
+                if (pattern.matcher(context.getContextName()).matches()) {
+                    contextManager.deleteContext(requestId, context.getContextName());
+                }
+            });
         }
 
-        private void deleteContext(String rawContext) {
+        private void deleteContext(CompiledTemplate rawContext) {
             contextManager.deleteContext(requestId, createContextName(rawContext));
         }
 
-        private void handleListDeletion(DeleteStateParameters.ListParameters listConfig, String contextName) {
-            if (Boolean.TRUE.equals(listConfig.getDeleteFirst())) {
-                deleteFirst(contextName);
-            } else if (Boolean.TRUE.equals(listConfig.getDeleteLast())) {
-                deleteLast(contextName);
-            } else if (StringUtils.isNotBlank(listConfig.getDeleteIndex())) {
-                deleteIndex(listConfig, contextName);
-            } else if (listConfig.getDeleteWhere() != null &&
-                listConfig.getDeleteWhere().getProperty() != null &&
-                listConfig.getDeleteWhere().getValue() != null
-            ) {
-                deleteWhere(listConfig, contextName);
-            } else {
-                throw createConfigurationError("Missing/invalid configuration for list entry deletion");
+        private void handleListDeletion(ListAction listAction, String contextName) {
+            switch (listAction.type) {
+                case DELETE_FIRST:
+                    deleteFirst(contextName);
+                    break;
+                case DELETE_LAST:
+                    deleteLast(contextName);
+                    break;
+                case DELETE_INDEX:
+                    deleteIndex(listAction, contextName);
+                    break;
+                case DELETE_WHERE:
+                    deleteWhere(listAction, contextName);
+                    break;
             }
         }
 
         private void deleteFirst(String contextName) {
             contextManager.createOrUpdateContextList(requestId, contextName, maps -> {
-                if (!maps.isEmpty()) maps.removeFirst();
-                logger().info(contextName, "list::deleteFirst");
+                logger.info(contextName, "list::deleteFirst");
+                return maps.isEmpty() ? maps : maps.withoutFirst();
             });
         }
 
         private void deleteLast(String contextName) {
             contextManager.createOrUpdateContextList(requestId, contextName, maps -> {
-                if (!maps.isEmpty()) maps.removeLast();
-                logger().info(contextName, "list::deleteLast");
+                logger.info(contextName, "list::deleteLast");
+                return maps.isEmpty() ? maps : maps.withoutLast();
             });
         }
 
-        private void deleteIndex(DeleteStateParameters.ListParameters listConfig, String contextName) {
+        private void deleteIndex(ListAction listAction, String contextName) {
             try {
-                var index = Integer.parseInt(renderTemplate(model, listConfig.getDeleteIndex()));
+                var index = Integer.parseInt(listAction.index.render(model));
                 contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                    list.remove(index);
-                    logger().info(contextName, String.format("list::deleteIndex(%d)", index));
+                    var newList = list.without(index);
+                    logger.info(contextName, () -> String.format("list::deleteIndex(%d)", index));
+                    return newList;
                 });
             } catch (IndexOutOfBoundsException | NumberFormatException e) {
-                logger().info(contextName, String.format("Unknown or unparsable list index: '%s' - ignoring", listConfig.getDeleteIndex()));
+                logger.info(contextName, () -> String.format("Unknown or unparsable list index: '%s' - ignoring", listAction.rawIndex));
             }
         }
 
-        private void deleteWhere(DeleteStateParameters.ListParameters listConfig, String contextName) {
-            var property = renderTemplate(model, listConfig.getDeleteWhere().getProperty());
-            var value = renderTemplate(model, listConfig.getDeleteWhere().getValue());
+        private void deleteWhere(ListAction listAction, String contextName) {
+            var property = listAction.whereProperty.render(model);
+            var value = listAction.whereValue.render(model);
             contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                var iterator = list.iterator();
-                while (iterator.hasNext()) {
-                    var element = iterator.next();
-                    if (Objects.equals(element.getOrDefault(property, null), value)) {
-                        iterator.remove();
-                        logger().info(contextName, String.format("list::deleteWhere(property=%s)", property));
-                        break;
-                    }
+                var newList = list.withoutFirstMatching(element -> Objects.equals(element.getOrDefault(property, null), value));
+                if (newList != list) {
+                    logger.info(contextName, () -> String.format("list::deleteWhere(property=%s)", property));
                 }
+                return newList;
             });
         }
 
-        private String createContextName(String rawContext) {
-            var context = Optional.ofNullable(rawContext).filter(StringUtils::isNotBlank)
-                .map(it -> renderTemplate(model, it))
-                .orElseThrow(() -> new ConfigurationException("No context specified"));
+        private String createContextName(CompiledTemplate rawContext) {
+            var context = rawContext.render(model);
             if (StringUtils.isBlank(context)) {
                 throw createConfigurationError("Context cannot be blank");
             }
@@ -23,18 +23,24 @@ import com.github.tomakehurst.wiremock.extension.WireMockServices;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
+import org.wiremock.extensions.state.internal.CompiledTemplate;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.api.RecordStateParameters;
 import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
-
 /**
  * Event listener to trigger state context recording.
  * <p>
@@ -46,18 +52,26 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
 
     private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final ExtensionLogger logger;
+    private final TemplateRenderer templateRenderer;
+    private final ParametersCache<Plan> plans = new ParametersCache<>(this::createPlan);
 
-    public RecordStateEventListener(ContextManager contextManager, WireMockServices services) {
+    public RecordStateEventListener(ContextManager contextManager, WireMockServices services, TemplateRenderer templateRenderer) {
         this.contextManager = contextManager;
+        this.logger = contextManager.getLogger();
         this.wireMockServices = services;
+        this.templateRenderer = templateRenderer;
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
+        new ListenerInstance(serveEvent.getId().toString(), () -> buildModel(serveEvent), plans.get(parameters)).run();
+    }
+
+    private Map<String, Object> buildModel(ServeEvent serveEvent) {
         final Map<String, Object> model = new HashMap<>();
         model.putAll(wireMockServices.getTemplateEngine().buildModelForRequest(serveEvent));
         model.put("response", ResponseTemplateModel.from(serveEvent.getResponse()));
-        var configuration = Json.mapToObject(parameters, RecordStateParameters.class);
-        new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
+        return model;
     }
 
     @Override
@@ -70,22 +84,91 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
         return false;
     }
 
+    private Plan createPlan(Parameters parameters) {
+        var configuration = Json.mapToObject(parameters, RecordStateParameters.class);
+        var context = Optional.ofNullable(configuration.getContext())
+            .filter(StringUtils::isNotBlank)
+            .orElseThrow(() -> new ConfigurationException("no context specified"));
+        var listConfiguration = Optional.ofNullable(configuration.getList());
+        return new Plan(
+            templateRenderer.compile(context),
+            Optional.ofNullable(configuration.getTtl()).map(templateRenderer::compile).orElse(null),
+            compileOrNull(configuration.getState()),
+            compileOrNull(listConfiguration.map(RecordStateParameters.ListParameters::getAddFirst).orElse(null)),
+            compileOrNull(listConfiguration.map(RecordStateParameters.ListParameters::getAddLast).orElse(null))
+        );
+    }
+
+    private PropertiesTemplate compileOrNull(Map<String, String> configuration) {
+        if (configuration == null) {
+            return null;
+        }
+        var templates = new LinkedHashMap<String, CompiledTemplate>();
+        configuration.forEach((key, value) -> templates.put(key, templateRenderer.compile(value)));
+        return new PropertiesTemplate(templates);
+    }
 
-    private String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+    /**
+     * Configuration of a stub mapping, interpreted once and shared by all requests of the stub mapping.
+     */
+    private static class Plan {
+        private final CompiledTemplate context;
+        private final CompiledTemplate ttl;
+        private final PropertiesTemplate state;
+        private final PropertiesTemplate addFirst;
+        private final PropertiesTemplate addLast;
+
+        Plan(CompiledTemplate context, CompiledTemplate ttl, PropertiesTemplate state, PropertiesTemplate addFirst, PropertiesTemplate addLast) {
+            this.context = context;
+            this.ttl = ttl;
+            this.state = state;
+            this.addFirst = addFirst;
+            this.addLast = addLast;
+        }
+    }
+
+    /**
+     * Property values to render. Properties without any template are rendered once.
+     */
+    private static class PropertiesTemplate {
+        private final Map<String, CompiledTemplate> templates;
+        private final Map<String, String> literal;
+
+        PropertiesTemplate(Map<String, CompiledTemplate> templates) {
+            this.templates = Collections.unmodifiableMap(templates);
+            if (templates.values().stream().allMatch(CompiledTemplate::isLiteral)) {
+                this.literal = render(() -> null);
+            } else {
+                this.literal = null;
+            }
+        }
+
+        Map<String, String> render(Supplier<?> model) {
+            if (literal != null) {
+                return literal;
+            }
+            return templates.entrySet()
+                .stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().render(model)))
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
     }
 
     private class ListenerInstance {
         private final String requestId;
-        private final RecordStateParameters parameters;
-        private final Map<String, Object> model;
+        private final Plan plan;
+        private final Supplier<Map<String, Object>> modelFactory;
+        private final Supplier<Map<String, Object>> model = this::getModel;
         private final String contextName;
+        private final Duration ttl;
+        private Map<String, Object> modelInstance;
 
-        ListenerInstance(String requestId, Map<String, Object> model, RecordStateParameters parameters) {
+        ListenerInstance(String requestId, Supplier<Map<String, Object>> modelFactory, Plan plan) {
             this.requestId = requestId;
-            this.model = model;
-            this.parameters = parameters;
+            this.modelFactory = modelFactory;
+            this.plan = plan;
             this.contextName = createContextName();
+            this.ttl = createTtl();
         }
 
         void run() {
@@ -93,54 +176,65 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
             handleList();
         }
 
+        private Map<String, Object> getModel() {
+            if (modelInstance == null) {
+                modelInstance = modelFactory.get();
+            }
+            return modelInstance;
+        }
+
         private String createContextName() {
-            var rawContext = Optional.ofNullable(parameters.getContext())
-                .filter(StringUtils::isNotBlank)
-                .orElseThrow(() -> new ConfigurationException("no context specified"));
-            String context = renderTemplate(model, rawContext);
+            String context = plan.context.render(model);
             if (StringUtils.isBlank(context)) {
                 throw createConfigurationError("context cannot be blank");
             }
             return context;
         }
 
+        private Duration createTtl() {
+            if (plan.ttl == null) {
+                return null;
+            }
+            var ttlSeconds = plan.ttl.render(model);
+            try {
+                var seconds = Long.parseLong(ttlSeconds.trim());
+                if (seconds > 0) {
+                    return Duration.ofSeconds(seconds);
+                }
+            } catch (NumberFormatException ignored) {
+                // handled below
+            }
+            throw createConfigurationError("ttl has to be a positive number of seconds: %s", ttlSeconds);
+        }
+
         private void handleState() {
-            Optional.ofNullable(parameters.getState())
+            Optional.ofNullable(plan.state)
                 .ifPresent(configuration ->
-                    contextManager.createOrUpdateContextState(requestId, contextName, getPropertiesFromConfiguration(configuration))
+                    contextManager.createOrUpdateContextState(requestId, contextName, configuration.render(model), ttl)
                 );
         }
 
-        private Map<String, String> getPropertiesFromConfiguration(Map<String, String> configuration) {
-            return configuration.entrySet()
-                .stream()
-                .map(entry -> Map.entry(entry.getKey(), renderTemplate(model, entry.getValue())))
-                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
-        }
-
         private void handleList() {
-            Optional.ofNullable(parameters.getList())
-                .ifPresent(listConfiguration -> {
-                        Optional.ofNullable(listConfiguration.getAddFirst())
-                            .ifPresent(this::addFirst);
-                        Optional.ofNullable(listConfiguration.getAddLast())
-                            .ifPresent(this::addLast);
-                    }
-                );
+            Optional.ofNullable(plan.addFirst)
+                .ifPresent(this::addFirst);
+            Optional.ofNullable(plan.addLast)
+                .ifPresent(this::addLast);
         }
 
-        private void addFirst(Map<String, String> configuration) {
+        private void addFirst(PropertiesTemplate configuration) {
             contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addFirst(getPropertiesFromConfiguration(configuration));
-                logger().info(contextName, "list::addFirst");
-            });
+                var newList = list.prepend(configuration.render(model));
+                logger.info(contextName, "list::addFirst");
+                return newList;
+            }, ttl);
         }
 
-        private void addLast(Map<String, String> configuration) {
+        private void addLast(PropertiesTemplate configuration) {
             contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addLast(getPropertiesFromConfiguration(configuration));
-                logger().info(contextName, "list::addLast");
-            });
+                var newList = list.append(configuration.render(model));
+                logger.info(contextName, "list::addLast");
+                return newList;
+            }, ttl);
         }
     }
 }
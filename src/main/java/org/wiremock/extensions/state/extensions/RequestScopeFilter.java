@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.extensions;
+
+import com.github.tomakehurst.wiremock.extension.requestfilter.RequestFilterAction;
+import com.github.tomakehurst.wiremock.extension.requestfilter.StubRequestFilterV2;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.wiremock.extensions.state.internal.ContextManager;
+
+/**
+ * Opens the request scope of a stub request, so context snapshots are shared by matchers, templates and listeners.
+ * <p>
+ * The scope is closed by {@link TransactionEventListener} once the request completes.
+ * <p>
+ * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
+ *
+ * @see org.wiremock.extensions.state.StateExtension
+ */
+public class RequestScopeFilter implements StubRequestFilterV2 {
+
+    private final ContextManager contextManager;
+
+    public RequestScopeFilter(ContextManager contextManager) {
+        this.contextManager = contextManager;
+    }
+
+    @Override
+    public String getName() {
+        return "stateRequestScope";
+    }
+
+    @Override
+    public RequestFilterAction filter(Request request, ServeEvent serveEvent) {
+        contextManager.openRequestScope(serveEvent.getId().toString());
+        return RequestFilterAction.continueWith(request);
+    }
+}
@@ -19,21 +19,21 @@ import com.github.jknack.handlebars.Options;
 import com.github.tomakehurst.wiremock.common.Json;
 import com.github.tomakehurst.wiremock.common.JsonException;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.helpers.HandlebarsHelper;
-import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
 import org.apache.commons.lang3.StringUtils;
 import org.wiremock.extensions.state.internal.model.Context;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.ListPathCompiler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
-
 /**
  * Response templating helper to access state.
  * <p>
@@ -44,17 +44,20 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
 public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
 
     private final ContextManager contextManager;
+    private final ExtensionLogger logger;
+    private final ListPathCompiler listPathCompiler = new ListPathCompiler();
 
     public StateHandlerbarHelper(ContextManager contextManager) {
         this.contextManager = contextManager;
+        this.logger = contextManager.getLogger();
     }
 
     @Override
     public Object apply(Object o, Options options) {
-        String contextName = Optional.ofNullable(options.hash("context")).map(Object::toString).orElse(null);
-        String property = Optional.ofNullable(options.hash("property")).map(Object::toString).orElse(null);
-        String list = Optional.ofNullable(options.hash("list")).map(Object::toString).orElse(null);
-        String defaultValue = Optional.ofNullable(options.hash("default")).map(Object::toString).orElse(null);
+        String contextName = getHashValue(options, "context");
+        String property = getHashValue(options, "property");
+        String list = getHashValue(options, "list");
+        String defaultValue = getHashValue(options, "default");
         if (StringUtils.isEmpty(contextName)) {
             return handleError("'context' cannot be empty");
         }
@@ -64,7 +67,7 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
         if (StringUtils.isNotBlank(property)) {
             return getProperty(contextName, property, defaultValue)
                 .orElseGet(() -> {
-                    logger().info(contextName, String.format("property '%s' not found, using `null`", property));
+                    logger.info(contextName, () -> String.format("property '%s' not found, using `null`", property));
                     return "";
                 });
         } else {
@@ -72,7 +75,7 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
                 .orElseGet(() ->
                     Optional.ofNullable(defaultValue)
                         .orElseGet(() -> {
-                            logger().info(contextName, "list not found, using `null`");
+                            logger.info(contextName, "list not found, using `null`");
                             return "";
                         })
                 );
@@ -80,61 +83,69 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
         }
     }
 
+    private static String getHashValue(Options options, String name) {
+        Object value = options.hash(name);
+        return value == null ? null : value.toString();
+    }
+
     private Optional<Object> getProperty(String contextName, String property, String defaultValue) {
-        return contextManager.getContextCopy(contextName)
-            .map(context ->
-                Stream.of(SpecialProperties.values())
-                    .filter(it -> it.name().equals(property))
-                    .findFirst()
-                    .map(it -> it.getFromContext(context))
-                    .orElseGet(() -> context.getProperties().get(property))
+        var specialProperty = SpecialProperties.from(property);
+        return contextManager.readContext(
+                contextName,
+                context -> specialProperty == null ? context.getProperties().get(property) : specialProperty.getFromContext(context)
             )
-            .or(() -> convertToPropertySpecificDefault(contextName, property, defaultValue))
+            .or(() -> convertToPropertySpecificDefault(contextName, specialProperty, defaultValue))
             .map((obj) -> {
-                logger().info(contextName, String.format("handlebar(property=%s)", property));
+                logger.info(contextName, () -> String.format("handlebar(property=%s)", property));
                 return obj;
             });
     }
 
-    private Optional<Object> convertToPropertySpecificDefault(String contextName, String property, String defaultValue) {
-        return Stream.of(SpecialProperties.values())
-            .filter(it -> it.name().equals(property))
-            .findFirst()
-            .map(specialProperty ->
+    private Optional<Object> convertToPropertySpecificDefault(String contextName, SpecialProperties specialProperty, String defaultValue) {
+        if (specialProperty == null) {
+            return Optional.ofNullable(defaultValue);
+        }
+        return Optional.ofNullable(
                 Optional.ofNullable(defaultValue)
-                    .map(it -> specialProperty.convertDefaultValue(contextName, it))
-                    .orElseGet(() -> specialProperty.getBuiltInDefault(contextName)))
+                    .map(it -> specialProperty.convertDefaultValue(logger, contextName, it))
+                    .orElseGet(() -> specialProperty.getBuiltInDefault(logger, contextName))
+            )
             .or(() -> Optional.ofNullable(defaultValue));
     }
 
     private Optional<Object> getList(String contextName, String list) {
-        return contextManager.getContextCopy(contextName)
-            .flatMap(context -> {
+        return contextManager.readContext(contextName, Context::getList)
+            .flatMap(contextList -> {
                 try {
-                    return Optional.of(JsonPath.read(context.getList(), list));
+                    return Optional.ofNullable(listPathCompiler.compile(list).read(contextList));
                 } catch (PathNotFoundException e) {
-                    logger().info(contextName, "Path query failed: " + e.getMessage());
+                    logger.info(contextName, () -> "Path query failed: " + e.getMessage());
                     return Optional.empty();
                 }
             })
             .map((obj) -> {
-                logger().info(contextName, "handlebar(list)");
+                logger.info(contextName, "handlebar(list)");
                 return obj;
             });
     }
 
+    @FunctionalInterface
+    private interface DefaultConverter {
+        Object convert(ExtensionLogger logger, String contextName, String defaultValue);
+    }
+
     private enum SpecialProperties {
-        updateCount(Context::getUpdateCount, (contextName) -> 0, (contextName, it) -> it),
-        listSize((context) -> context.getList().size(), (contextName) -> 0, (contextName, it) -> it),
+        updateCount(Context::getUpdateCount, (contextName) -> 0, (logger, contextName, it) -> it),
+        listSize((context) -> context.getList().size(), (contextName) -> 0, (logger, contextName, it) -> it),
         @SuppressWarnings("rawtypes") list(
             Context::getList,
             (contextName) -> List.of(),
-            (contextName, defaultValue) -> Optional.ofNullable(defaultValue)
+            (logger, contextName, defaultValue) -> Optional.ofNullable(defaultValue)
                 .map(it -> {
                     try {
                         return Json.read(it, ArrayList.class);
                     } catch (JsonException ex) {
-                        logger().error(contextName, "default for list property is not a JSON list - fallback to empty list: " + defaultValue);
+                        logger.error(contextName, "default for list property is not a JSON list - fallback to empty list: " + defaultValue);
                         return null;
                     }
                 })
@@ -143,31 +154,41 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
                 .get()
         );
 
+        private static final Map<String, SpecialProperties> BY_NAME = Stream.of(values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, Function.identity()));
+
         private final Function<Context, Object> contextExtractor;
         private final Function<String, Object> builtInDefault;
-        private final BiFunction<String, String, Object> defaultConverter;
+        private final DefaultConverter defaultConverter;
 
         SpecialProperties(
             Function<Context, Object> contextExtractor,
             Function<String, Object> builtInDefault,
-            BiFunction<String, String, Object> defaultConverter
+            DefaultConverter defaultConverter
         ) {
             this.contextExtractor = contextExtractor;
             this.builtInDefault = builtInDefault;
             this.defaultConverter = defaultConverter;
         }
 
+        /**
+         * @return The special property of the given name - or `null` for a regular property.
+         */
+        public static SpecialProperties from(String property) {
+            return BY_NAME.get(property);
+        }
+
         public Object getFromContext(Context context) {
             return contextExtractor.apply(context);
         }
 
-        public Object convertDefaultValue(String contextName, String defaultValue) {
-            logger().info(contextName, String.format("property '%s' using configured default value", name()));
-            return defaultConverter.apply(contextName, defaultValue);
+        public Object convertDefaultValue(ExtensionLogger logger, String contextName, String defaultValue) {
+            logger.info(contextName, () -> String.format("property '%s' using configured default value", name()));
+            return defaultConverter.convert(logger, contextName, defaultValue);
         }
 
-        public Object getBuiltInDefault(String contextName) {
-            logger().info(contextName, String.format("property '%s' using built-in default value", name()));
+        public Object getBuiltInDefault(ExtensionLogger logger, String contextName) {
+            logger.info(contextName, () -> String.format("property '%s' using built-in default value", name()));
             return builtInDefault.apply(contextName);
         }
     }
@@ -24,47 +24,69 @@ import com.github.tomakehurst.wiremock.http.Request;
 import com.github.tomakehurst.wiremock.matching.MatchResult;
 import com.github.tomakehurst.wiremock.matching.RequestMatcherExtension;
 import com.github.tomakehurst.wiremock.matching.StringValuePattern;
+import org.apache.commons.lang3.StringUtils;
+import org.wiremock.extensions.state.internal.CompiledTemplate;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ExtensionLogger;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.model.Context;
 import org.wiremock.extensions.state.internal.model.ContextTemplateModel;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
 
 /**
  * Request matcher for state.
  * <p>
+ * Matchers of a stub mapping are evaluated cheapest first. With short-circuit evaluation enabled, evaluation stops at the
+ * first matcher that does not match. The result of a failed match then only reflects this matcher, which is sufficient for
+ * stub selection but makes near-miss reports less precise.
+ * <p>
+ * WireMock matches a request against every candidate stub mapping. The request model and the rendered context names are
+ * shared by all these evaluations within the request scope, so stubs using the same context template cause a single
+ * rendering and context lookup per request. The scope is tied to the request matched first, evaluations of other requests
+ * on the same thread never see its values.
+ * <p>
  * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
  *
  * @see org.wiremock.extensions.state.StateExtension
  */
 public class StateRequestMatcher extends RequestMatcherExtension implements StateExtensionMixin {
 
+    private static final String REQUEST_MODEL_KEY = "stateRequestMatcher:model";
+    private static final String CONTEXT_NAME_KEY_PREFIX = "stateRequestMatcher:contextName:";
+
     private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final ExtensionLogger logger;
+    private final TemplateRenderer templateRenderer;
+    private final boolean shortCircuit;
+    private final ParametersCache<Plan> plans = new ParametersCache<>(this::createPlan);
 
-    public StateRequestMatcher(ContextManager contextManager, WireMockServices services) {
-        this.contextManager = contextManager;
-        this.wireMockServices = services;
+    public StateRequestMatcher(ContextManager contextManager, WireMockServices services, TemplateRenderer templateRenderer) {
+        this(contextManager, services, templateRenderer, false);
     }
 
-    private static List<Map.Entry<ContextMatcher, Object>> getMatchers(Parameters parameters) {
-        return parameters
-            .entrySet()
-            .stream()
-            .filter(it -> ContextMatcher.from(it.getKey()) != null)
-            .map(it -> Map.entry(ContextMatcher.from(it.getKey()), it.getValue()))
-            .collect(Collectors.toUnmodifiableList());
+    public StateRequestMatcher(ContextManager contextManager, WireMockServices services, TemplateRenderer templateRenderer, boolean shortCircuit) {
+        this.contextManager = contextManager;
+        this.logger = contextManager.getLogger();
+        this.wireMockServices = services;
+        this.templateRenderer = templateRenderer;
+        this.shortCircuit = shortCircuit;
     }
 
     private static <T> T mapToObject(Map<String, Object> map, Class<T> klass) {
@@ -97,20 +119,60 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     @Override
     public MatchResult match(Request request, Parameters parameters) {
-        var model = wireMockServices.getTemplateEngine().buildModelForRequest(request);
-        return Optional
-            .ofNullable(parameters.getString("hasContext", null))
-            .map(template -> hasContext(model, parameters, template))
-            .or(() -> Optional.ofNullable(parameters.getString("hasNotContext", null)).map(template -> hasNotContext(model, template)))
-            .orElseThrow(() -> createConfigurationError("Parameters should only contain 'hasContext' or 'hasNotContext'"));
+        var plan = plans.get(parameters);
+        contextManager.joinRequestScope(request);
+        var model = new LazyModel(() -> contextManager.computeInRequestScope(
+            REQUEST_MODEL_KEY,
+            () -> wireMockServices.getTemplateEngine().buildModelForRequest(request)
+        ));
+        if (plan.hasContext != null) {
+            return hasContext(model, plan.matchers, renderContextName(plan.hasContext, plan.contextNameKey, model));
+        } else {
+            return hasNotContext(renderContextName(plan.hasNotContext, plan.contextNameKey, model));
+        }
+    }
+
+    private String renderContextName(CompiledTemplate template, String key, LazyModel model) {
+        if (key == null) {
+            return template.render(model);
+        }
+        return contextManager.computeInRequestScope(key, () -> template.render(model));
+    }
+
+    private Plan createPlan(Parameters parameters) {
+        var hasContext = parameters.getString("hasContext", null);
+        var hasNotContext = parameters.getString("hasNotContext", null);
+        if (hasContext == null && hasNotContext == null) {
+            throw createConfigurationError("Parameters should only contain 'hasContext' or 'hasNotContext'");
+        }
+        if (StringUtils.isBlank(hasContext != null ? hasContext : hasNotContext)) {
+            throw createConfigurationError("No context specified");
+        }
+        var matchers = new ArrayList<MatcherEntry>();
+        parameters.forEach((key, value) -> {
+            var matcher = ContextMatcher.from(key);
+            if (matcher != null) {
+                matchers.add(new MatcherEntry(matcher, value));
+            }
+        });
+        matchers.sort(Comparator.comparingInt(it -> it.matcher.cost));
+        var hasContextTemplate = hasContext == null ? null : templateRenderer.compile(hasContext);
+        var hasNotContextTemplate = hasNotContext == null ? null : templateRenderer.compile(hasNotContext);
+        var contextName = hasContextTemplate != null ? hasContextTemplate : hasNotContextTemplate;
+        var contextNameSource = hasContextTemplate != null ? hasContext : hasNotContext;
+        return new Plan(
+            hasContextTemplate,
+            hasNotContextTemplate,
+            contextName.isLiteral() ? null : CONTEXT_NAME_KEY_PREFIX + contextNameSource,
+            List.copyOf(matchers)
+        );
     }
 
-    private MatchResult hasContext(Map<String, Object> model, Parameters parameters, String template) {
-        return contextManager.getContextCopy(renderTemplate(model, template))
+    private MatchResult hasContext(LazyModel model, List<MatcherEntry> matchers, String contextName) {
+        return contextManager.getContextCopy(contextName)
             .map(context -> {
-                List<Map.Entry<ContextMatcher, Object>> matchers = getMatchers(parameters);
                 if (matchers.isEmpty()) {
-                    logger().info(context, "hasContext matched");
+                    logger.info(context, "hasContext matched");
                     return MatchResult.exactMatch();
                 } else {
                     return calculateMatch(model, context, matchers);
@@ -118,20 +180,22 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }).orElseGet(MatchResult::noMatch);
     }
 
-    private MatchResult calculateMatch(Map<String, Object> model, Context context, List<Map.Entry<ContextMatcher, Object>> matchers) {
-        model.put("context", ContextTemplateModel.from(context));
-        var results = matchers
-            .stream()
-            .map(it -> it.getKey().evaluate(context, renderTemplateRecursively(model, it.getValue())))
-            .collect(Collectors.toList());
-
+    private MatchResult calculateMatch(LazyModel model, Context context, List<MatcherEntry> matchers) {
+        model.setContext(context);
+        var results = new ArrayList<MatchResult>(matchers.size());
+        for (MatcherEntry entry : matchers) {
+            var result = entry.matcher.evaluate(logger, context, entry.getPrepared(model));
+            if (shortCircuit && !result.isExactMatch()) {
+                return result;
+            }
+            results.add(result);
+        }
         return MatchResult.aggregate(results);
     }
 
-    private MatchResult hasNotContext(Map<String, Object> model, String template) {
-        var context = renderTemplate(model, template);
-        if (contextManager.getContextCopy(context).isEmpty()) {
-            logger().info(context, "hasNotContext matched");
+    private MatchResult hasNotContext(String contextName) {
+        if (contextManager.getContextCopy(contextName).isEmpty()) {
+            logger.info(contextName, "hasNotContext matched");
             return MatchResult.exactMatch();
         } else {
             return MatchResult.noMatch();
@@ -139,7 +203,7 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
     }
 
     String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+        return templateRenderer.render(context, value);
     }
 
     @SuppressWarnings("unchecked")
@@ -160,34 +224,132 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
     }
 
+    private static boolean isLiteral(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().allMatch(StateRequestMatcher::isLiteral);
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().stream().allMatch(it -> isLiteral(it.getKey()) && isLiteral(it.getValue()));
+        } else {
+            return value == null || !value.toString().contains("{{");
+        }
+    }
+
+    /**
+     * Template model of a single match, only built if a template actually needs it.
+     * <p>
+     * The request model may be shared with other matches of the request, so it is copied before adding the context.
+     */
+    private static class LazyModel implements Supplier<Map<String, Object>> {
+        private final Supplier<Map<String, Object>> requestModel;
+        private Map<String, Object> model;
+        private Context context;
+
+        LazyModel(Supplier<Map<String, Object>> requestModel) {
+            this.requestModel = requestModel;
+        }
+
+        void setContext(Context context) {
+            this.context = context;
+            this.model = null;
+        }
+
+        @Override
+        public Map<String, Object> get() {
+            if (context == null) {
+                return requestModel.get();
+            }
+            if (model == null) {
+                model = new HashMap<>(requestModel.get());
+                model.put("context", ContextTemplateModel.from(context));
+            }
+            return model;
+        }
+    }
+
+    /**
+     * Matcher configuration. Configurations without any template are only interpreted once.
+     */
+    private class MatcherEntry {
+        private final ContextMatcher matcher;
+        private final Object value;
+        private final boolean literal;
+        private volatile Object prepared;
+
+        MatcherEntry(ContextMatcher matcher, Object value) {
+            this.matcher = matcher;
+            this.value = value;
+            this.literal = isLiteral(value);
+        }
+
+        Object getPrepared(LazyModel model) {
+            if (!literal) {
+                return matcher.prepare(renderTemplateRecursively(model.get(), value));
+            }
+            var result = prepared;
+            if (result == null) {
+                result = matcher.prepare(renderTemplateRecursively(null, value));
+                prepared = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Configuration of a stub mapping, interpreted once and shared by all requests matched against the stub mapping.
+     * <p>
+     * `contextNameKey` identifies the rendered context name in the request scope. It is `null` for literal context names.
+     */
+    private static class Plan {
+        private final CompiledTemplate hasContext;
+        private final CompiledTemplate hasNotContext;
+        private final String contextNameKey;
+        private final List<MatcherEntry> matchers;
+
+        Plan(CompiledTemplate hasContext, CompiledTemplate hasNotContext, String contextNameKey, List<MatcherEntry> matchers) {
+            this.hasContext = hasContext;
+            this.hasNotContext = hasNotContext;
+            this.contextNameKey = contextNameKey;
+            this.matchers = matchers;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Evaluator {
+        MatchResult evaluate(ExtensionLogger logger, Context context, Object prepared);
+    }
+
     private enum ContextMatcher {
 
-        property((Context c, Object object) -> {
-            @SuppressWarnings("unchecked") Map<String, Map<String, Object>> mapValue = cast(object, Map.class);
-            var results = mapValue.entrySet().stream().map(entry -> {
-                var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
+        property(2, ContextMatcher::parsePatterns, (ExtensionLogger logger, Context c, Object object) -> {
+            @SuppressWarnings("unchecked") Map<String, StringValuePattern> patterns = (Map<String, StringValuePattern>) object;
+            var results = patterns.entrySet().stream().map(entry -> {
                 var propertyValue = c.getProperties().get(entry.getKey());
-                return patterns.match(propertyValue);
+                return entry.getValue().match(propertyValue);
             }).collect(Collectors.toList());
             if (results.isEmpty()) {
-                logger().info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
+                logger.info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
                 return MatchResult.exactMatch();
             } else {
                 return MatchResult.aggregate(results);
             }
         }),
 
-        list((Context c, Object object) -> {
+        list(3, (Object object) -> {
             @SuppressWarnings("unchecked") Map<String, Map<String, Map<String, Object>>> mapValue = cast(object, Map.class);
-            var allResults = mapValue.entrySet().stream().map(listIndexEntry -> {
+            var patterns = new LinkedHashMap<String, Map<String, StringValuePattern>>();
+            mapValue.forEach((index, entryPatterns) -> patterns.put(index, parsePatterns(entryPatterns)));
+            return patterns;
+        }, (ExtensionLogger logger, Context c, Object object) -> {
+            @SuppressWarnings("unchecked") Map<String, Map<String, StringValuePattern>> patterns = (Map<String, Map<String, StringValuePattern>>) object;
+            var allResults = patterns.entrySet().stream().map(listIndexEntry -> {
                 Map<String, String> listEntry;
                 switch (listIndexEntry.getKey()) {
                     case "last":
                     case "-1":
-                        listEntry = c.getList().getLast();
+                        listEntry = c.getList().isEmpty() ? null : c.getList().last();
                         break;
                     case "first":
-                        listEntry = c.getList().getFirst();
+                        listEntry = c.getList().isEmpty() ? null : c.getList().first();
                         break;
                     default:
                         listEntry = withConvertedNumberGet(c, listIndexEntry.getKey(), (context, value) -> c.getList().get(value.intValue()));
@@ -196,12 +358,11 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
                     return MatchResult.noMatch();
                 } else {
                     List<MatchResult> results = listIndexEntry.getValue().entrySet().stream().map(entry -> {
-                        var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
                         var propertyValue = listEntry.get(entry.getKey());
-                        return patterns.match(propertyValue);
+                        return entry.getValue().match(propertyValue);
                     }).collect(Collectors.toList());
                     if (results.isEmpty()) {
-                        logger().info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
+                        logger.info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
                         return MatchResult.exactMatch();
                     } else {
                         return MatchResult.aggregate(results);
@@ -210,51 +371,72 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }).collect(Collectors.toList());
             return MatchResult.aggregate(allResults);
         }),
-        hasProperty((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        hasProperty(0, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(c.getProperties().containsKey(stringValue));
         }),
-        hasNotProperty((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        hasNotProperty(0, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(!c.getProperties().containsKey(stringValue));
         }),
-        updateCountEqualTo((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount().equals(value)));
+        updateCountEqualTo(0, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
+            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() == value));
         }),
-        updateCountLessThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        updateCountLessThan(0, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() < value));
         }),
-        updateCountMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        updateCountMoreThan(0, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() > value));
         }),
-        listSizeEqualTo((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        listSizeEqualTo(1, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() == value));
         }),
-        listSizeLessThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        listSizeLessThan(1, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() < value));
         }),
-        listSizeMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
+        listSizeMoreThan(1, (ExtensionLogger logger, Context c, Object object) -> {
+            String stringValue = (String) object;
             return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() > value));
         });
 
-        private final BiFunction<Context, Object, MatchResult> evaluator;
+        private static final Map<String, ContextMatcher> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, Function.identity()));
+
+        /**
+         * Relative evaluation cost: lookups and counters first, list size next, pattern matches last.
+         */
+        private final int cost;
+        private final Function<Object, Object> parser;
+        private final Evaluator evaluator;
 
-        ContextMatcher(BiFunction<Context, Object, MatchResult> evaluator) {
+        ContextMatcher(int cost, Evaluator evaluator) {
+            this(cost, (Object object) -> cast(object, String.class), evaluator);
+        }
+
+        ContextMatcher(int cost, Function<Object, Object> parser, Evaluator evaluator) {
+            this.cost = cost;
+            this.parser = parser;
             this.evaluator = evaluator;
         }
 
+        private static Map<String, StringValuePattern> parsePatterns(Object object) {
+            @SuppressWarnings("unchecked") Map<String, Map<String, Object>> mapValue = cast(object, Map.class);
+            var patterns = new LinkedHashMap<String, StringValuePattern>();
+            mapValue.forEach((key, value) -> patterns.put(key, mapToObject(value, StringValuePattern.class)));
+            return patterns;
+        }
+
         private static MatchResult toMatchResult(boolean result) {
             return result ? MatchResult.exactMatch() : MatchResult.noMatch();
         }
 
         public static ContextMatcher from(String from) {
-            return Arrays.stream(values()).filter(it -> it.name().equals(from)).findFirst().orElse(null);
+            return BY_NAME.get(from);
         }
 
         private static boolean withConvertedNumber(Context context, String stringValue, BiFunction<Context, Long, Boolean> evaluator) {
@@ -275,8 +457,16 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }
         }
 
-        public MatchResult evaluate(Context context, Object value) {
-            return this.evaluator.apply(context, value);
+        /**
+         * @param value The rendered matcher configuration.
+         * @return The configuration prepared for {@link #evaluate(ExtensionLogger, Context, Object)}.
+         */
+        public Object prepare(Object value) {
+            return this.parser.apply(value);
+        }
+
+        public MatchResult evaluate(ExtensionLogger logger, Context context, Object prepared) {
+            return this.evaluator.evaluate(logger, context, prepared);
         }
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.extensions;
+
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.StateStatistics;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
+import org.wiremock.extensions.state.internal.TransactionManager;
+
+/**
+ * Admin API endpoint reporting statistics of the state: `GET /__admin/state/statistics`.
+ * <p>
+ * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
+ *
+ * @see org.wiremock.extensions.state.StateExtension
+ * @see StateStatistics
+ */
+public class StateStatisticsAdminApiExtension implements AdminApiExtension {
+
+    private final Store<String, Object> store;
+    private final TransactionManager transactionManager;
+    private final TemplateRenderer templateRenderer;
+
+    public StateStatisticsAdminApiExtension(
+        Store<String, Object> store,
+        TransactionManager transactionManager,
+        TemplateRenderer templateRenderer
+    ) {
+        this.store = store;
+        this.transactionManager = transactionManager;
+        this.templateRenderer = templateRenderer;
+    }
+
+    @Override
+    public String getName() {
+        return "stateStatistics";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(RequestMethod.GET, "/state/statistics", (admin, serveEvent, pathParams) -> ResponseDefinition.okForJson(getStatistics()));
+    }
+
+    public StateStatistics getStatistics() {
+        var templates = templateRenderer.getStatistics();
+        return StateStatistics.of(store, transactionManager.getTransactionCount(), templates.hitCount(), templates.missCount());
+    }
+}
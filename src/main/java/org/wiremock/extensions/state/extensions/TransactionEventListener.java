@@ -32,10 +32,12 @@ import org.wiremock.extensions.state.internal.TransactionManager;
 public class TransactionEventListener implements ServeEventListener, StateExtensionMixin {
 
     private final TransactionManager transactionManager;
+    private final ContextManager contextManager;
 
 
-    public TransactionEventListener(TransactionManager transactionManager) {
+    public TransactionEventListener(TransactionManager transactionManager, ContextManager contextManager) {
         this.transactionManager = transactionManager;
+        this.contextManager = contextManager;
     }
 
     @Override
@@ -50,9 +52,8 @@ public class TransactionEventListener implements ServeEventListener, StateExtens
 
     @Override
     public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
-
-        String requestId = serveEvent.getId().toString();
-        var contextNames = transactionManager.getContextNamesByRequestId(requestId);
-        contextNames.forEach((contextName) -> transactionManager.deleteTransaction(requestId, contextName));
+        var requestId = serveEvent.getId().toString();
+        transactionManager.deleteTransactions(requestId);
+        contextManager.closeRequestScope(requestId);
     }
 }
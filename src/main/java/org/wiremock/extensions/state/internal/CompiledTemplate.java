@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import java.util.function.Supplier;
+
+/**
+ * Template prepared for rendering.
+ *
+ * @see TemplateRenderer#compile(String)
+ */
+public interface CompiledTemplate {
+
+    /**
+     * @param model Supplier of the template model. Only called if the template actually needs a model.
+     * @return The rendered template.
+     */
+    String render(Supplier<?> model);
+
+    /**
+     * @return `true` if the template does not contain any handlebars expression and renders to its source.
+     */
+    boolean isLiteral();
+}
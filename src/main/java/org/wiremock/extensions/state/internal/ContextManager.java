@@ -16,40 +16,195 @@
 package org.wiremock.extensions.state.internal;
 
 import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.NamespacedStore;
+import org.wiremock.extensions.state.ShardedStore;
+import org.wiremock.extensions.state.VersionedStore;
+import org.wiremock.extensions.state.internal.model.ChunkedList;
 import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.Transaction;
 
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
-
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class ContextManager {
 
-    private final String CONTEXT_KEY_PREFIX = "context:";
+    private static final String CONTEXT_NAMESPACE = "context";
+    private static final String CONTEXT_KEY_PREFIX = CONTEXT_NAMESPACE + NamespacedStore.NAMESPACE_SEPARATOR;
     private final Store<String, Object> store;
     private final TransactionManager transactionManager;
+    private final ExtensionLogger logger;
+    private final ThreadLocal<RequestScope> requestScope = new ThreadLocal<>();
+    private final Map<String, RequestScope> openRequestScopes = new ConcurrentHashMap<>();
 
     public ContextManager(Store<String, Object> store, TransactionManager transactionManager) {
+        this(store, transactionManager, new ExtensionLogger(ExtensionLogger.isVerboseByDefault()));
+    }
+
+    public ContextManager(Store<String, Object> store, TransactionManager transactionManager, ExtensionLogger logger) {
         this.store = store;
         this.transactionManager = transactionManager;
+        this.logger = logger;
+    }
+
+    /**
+     * @return The logger of the extension instance this manager belongs to.
+     */
+    public ExtensionLogger getLogger() {
+        return logger;
     }
 
-    private static Supplier<Context> createNewContext(String contextName) {
-        logger().info(contextName, "created");
+    private Supplier<Context> createNewContext(String contextName) {
+        logger.info(contextName, "created");
         return () -> new Context(contextName);
     }
 
     /**
      * Searches for the context by the given name.
+     * <p>
+     * Contexts are immutable, so the result is a snapshot which is not affected by later changes. Within a request
+     * scope (see {@link #openRequestScope(String)}), the snapshot is taken once and reused until the request changes
+     * the context itself.
      *
      * @param contextName The context name to search for.
-     * @return Optional with a copy of the context - or empty.
+     * @return Optional with the current version of the context - or empty.
      */
     public Optional<Context> getContextCopy(String contextName) {
-        return getSafeContextCopy(contextName);
+        var scope = getRequestScope();
+        if (scope == null) {
+            return getContext(contextName);
+        }
+        return scope.snapshots.computeIfAbsent(contextName, this::getContext);
+    }
+
+    /**
+     * Reads a value of a context without handing out the context.
+     * <p>
+     * Contexts are immutable, so the reader works on the current version without copying or locking it.
+     *
+     * @param contextName The context name to search for.
+     * @param reader      Function extracting the value from the context.
+     * @param <T>         Type of the value.
+     * @return Optional with the value - or empty if the context does not exist or the value is `null`.
+     */
+    public <T> Optional<T> readContext(String contextName, Function<Context, T> reader) {
+        return getContextCopy(contextName).map(reader);
+    }
+
+    /**
+     * Starts caching context snapshots for a request on the current thread.
+     * <p>
+     * Matching, templating and the listeners of a request run on the thread handling the request, so they all share
+     * the snapshots. Writes of the request invalidate the snapshots of the context written. A scope left over by a
+     * previous request on this thread (e.g. one that failed before completion) is discarded.
+     *
+     * @param requestId ID of the request.
+     */
+    public void openRequestScope(String requestId) {
+        var previous = requestScope.get();
+        if (previous != null) {
+            close(previous);
+        }
+        var scope = new RequestScope(requestId);
+        openRequestScopes.put(requestId, scope);
+        requestScope.set(scope);
+    }
+
+    /**
+     * Stops caching context snapshots for a request.
+     * <p>
+     * May be called from any thread: the scope is no longer used by the thread it was opened on either.
+     *
+     * @param requestId ID of the completed request.
+     */
+    public void closeRequestScope(String requestId) {
+        var scope = openRequestScopes.get(requestId);
+        if (scope != null) {
+            close(scope);
+        }
+        getRequestScope();
+    }
+
+    /**
+     * Ties the request scope of the current thread to the request being matched.
+     * <p>
+     * The first request matched within a scope owns it. A scope owned by another request is a leftover of a request that
+     * did not complete normally (e.g. failed during matching) while the current evaluation does not belong to a stub
+     * request (e.g. near-miss or verification calls). The leftover scope is discarded, so neither its values nor its
+     * snapshots are reused.
+     *
+     * @param request The request being matched, compared by identity.
+     */
+    public void joinRequestScope(Object request) {
+        var scope = getRequestScope();
+        if (scope == null) {
+            return;
+        }
+        if (scope.request == null) {
+            scope.request = request;
+        } else if (scope.request != request) {
+            close(scope);
+            requestScope.remove();
+        }
+    }
+
+    private void close(RequestScope scope) {
+        scope.closed = true;
+        openRequestScopes.remove(scope.requestId, scope);
+    }
+
+    private RequestScope getRequestScope() {
+        var scope = requestScope.get();
+        if (scope != null && scope.closed) {
+            requestScope.remove();
+            return null;
+        }
+        return scope;
+    }
+
+    /**
+     * Computes a value once per request, e.g. the template model of the request, and shares it with everything
+     * handling the same request. Outside a request scope, the value is computed on every call.
+     *
+     * @param key      Key of the value, unique for what it is computed from.
+     * @param supplier Computes the value if it is not yet known in the request scope.
+     * @param <T>      Type of the value.
+     * @return The value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T computeInRequestScope(String key, Supplier<T> supplier) {
+        var scope = getRequestScope();
+        if (scope == null) {
+            return supplier.get();
+        }
+        // no computeIfAbsent: the supplier may compute other values of the request scope
+        var value = scope.values.get(key);
+        if (value == null) {
+            value = supplier.get();
+            scope.values.put(key, value);
+        }
+        return (T) value;
+    }
+
+    private void invalidateSnapshot(String contextName) {
+        var scope = getRequestScope();
+        if (scope != null) {
+            scope.snapshots.remove(contextName);
+        }
+    }
+
+    private void invalidateSnapshots() {
+        var scope = getRequestScope();
+        if (scope != null) {
+            scope.snapshots.clear();
+        }
     }
 
     /**
@@ -59,86 +214,128 @@ public class ContextManager {
      * @param contextName Name of the context to delete.
      */
     public void deleteContext(String requestId, String contextName) {
-        transactionManager.withTransaction(requestId, contextName, (transaction) -> {
+        withTransaction(requestId, contextName, (transaction) -> {
             store.remove(createContextKey(contextName));
-            logger().info(contextName, "deleted");
+            logger.info(contextName, "deleted");
         });
+        invalidateSnapshot(contextName);
     }
 
     /**
-     * Iterates over all contexts, passing a safe copy to the consumer.
+     * Iterates over all contexts, passing the current version to the consumer.
      * <p>
-     * Silently ignores non-existing contexts.
+     * Silently ignores non-existing contexts. With a {@link ShardedStore}, the consumer is called concurrently for
+     * contexts of different shards.
      *
      * @param requestId ID of the request performing this action.
      * @param consumer  Action to be performed on the copy of the context.
      */
     public void onEach(String requestId, Consumer<Context> consumer) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                var contextName = getContextNameFromContextKey(key);
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        contextName,
-                        (transaction) -> {
-                            getSafeContextCopy(contextName).ifPresent(consumer);
-                        });
-            });
+        forEachContextKey(key -> {
+            var contextName = getContextNameFromContextKey(key);
+            withTransaction(
+                requestId,
+                contextName,
+                (transaction) -> {
+                    getContext(contextName).ifPresent(consumer);
+                });
+        });
+        invalidateSnapshots();
     }
 
     public void deleteAllContexts(String requestId) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        getContextNameFromContextKey(key),
-                        (transaction) -> {
-                            store.remove(key);
-                        });
-                logger().info("allContexts", "deleted");
-            });
+        forEachContextKey(key -> {
+            withTransaction(
+                requestId,
+                getContextNameFromContextKey(key),
+                (transaction) -> {
+                    store.remove(key);
+                });
+        });
+        invalidateSnapshots();
+        logger.info("allContexts", "deleted");
     }
 
     public void createOrUpdateContextState(String requestId, String contextName, Map<String, String> properties) {
-        transactionManager.withTransaction(requestId, contextName, (transaction) -> {
-            var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
-                .orElseGet(createNewContext(contextName));
+        createOrUpdateContextState(requestId, contextName, properties, null);
+    }
+
+    /**
+     * Updates the properties of a context, creating the context if it does not exist yet.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to update.
+     * @param properties  Properties to set. A value of `null` (as string) removes the property.
+     * @param ttl         New time to live of the context - or `null` to keep the current one.
+     */
+    public void createOrUpdateContextState(String requestId, String contextName, Map<String, String> properties, Duration ttl) {
+        withTransaction(requestId, contextName, (transaction) -> updateContext(transaction, contextName, context -> {
+            var newProperties = new HashMap<>(context.getProperties());
             properties.forEach((k, v) -> {
                 if (v.equals("null")) {
-                    context.getProperties().remove(k);
-                    logger().info(contextName, String.format("property '%s' removed", k));
+                    newProperties.remove(k);
+                    logger.info(contextName, () -> String.format("property '%s' removed", k));
                 } else {
-                    context.getProperties().put(k, v);
-                    logger().info(contextName, String.format("property '%s' updated", k));
+                    newProperties.put(k, v);
+                    logger.info(contextName, () -> String.format("property '%s' updated", k));
                 }
             });
-            transaction.recordWrite(context::incUpdateCount);
-            store.put(contextKey, context);
-        });
+            return withTtl(context.withProperties(newProperties), ttl);
+        }));
     }
 
-    public void createOrUpdateContextList(String requestId, String contextName, Consumer<LinkedList<Map<String, String>>> consumer) {
-        transactionManager.withTransaction(requestId, contextName, (transaction) -> {
-            var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
-                .orElseGet(createNewContext(contextName));
-            consumer.accept(context.getList());
-            transaction.recordWrite(context::incUpdateCount);
-            store.put(contextKey, context);
-        });
+    /**
+     * Updates the list of a context, creating the context if it does not exist yet.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to update.
+     * @param update      Function creating the new list from the current one.
+     */
+    public void createOrUpdateContextList(String requestId, String contextName, UnaryOperator<ChunkedList<Map<String, String>>> update) {
+        createOrUpdateContextList(requestId, contextName, update, null);
+    }
+
+    /**
+     * Updates the list of a context, creating the context if it does not exist yet.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to update.
+     * @param update      Function creating the new list from the current one.
+     * @param ttl         New time to live of the context - or `null` to keep the current one.
+     */
+    public void createOrUpdateContextList(
+        String requestId,
+        String contextName,
+        UnaryOperator<ChunkedList<Map<String, String>>> update,
+        Duration ttl
+    ) {
+        withTransaction(
+            requestId,
+            contextName,
+            (transaction) -> updateContext(transaction, contextName, context -> withTtl(context.withList(update.apply(context.getList())), ttl))
+        );
     }
 
     public Long numUpdates(String contextName) {
         return store.get(createContextKey(contextName)).map(it -> ((Context) it).getUpdateCount()).orElse(0L);
     }
 
+    private void forEachContextKey(Consumer<String> action) {
+        if (store instanceof ShardedStore) {
+            ((ShardedStore) store).getShards().parallelStream().forEach(shard -> getContextKeys(shard).forEach(action));
+        } else {
+            getContextKeys(store).forEach(action);
+        }
+    }
+
+    private static Stream<String> getContextKeys(Store<String, Object> store) {
+        if (store instanceof NamespacedStore) {
+            return ((NamespacedStore) store).getKeys(CONTEXT_NAMESPACE);
+        } else {
+            return store.getAllKeys().filter(it -> it.startsWith(CONTEXT_KEY_PREFIX));
+        }
+    }
+
     private String getContextNameFromContextKey(String key) {
         return key.substring(CONTEXT_KEY_PREFIX.length());
     }
@@ -147,7 +344,62 @@ public class ContextManager {
         return CONTEXT_KEY_PREFIX + contextName;
     }
 
-    private Optional<Context> getSafeContextCopy(String contextName) {
-        return store.get(createContextKey(contextName)).map(it -> (Context) it).map(Context::new);
+    private Optional<Context> getContext(String contextName) {
+        return store.get(createContextKey(contextName)).map(it -> (Context) it);
+    }
+
+    private void withTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
+        if (store instanceof VersionedStore) {
+            transactionManager.withUnlockedTransaction(requestId, contextName, consumer);
+        } else {
+            transactionManager.withTransaction(requestId, contextName, consumer);
+        }
+    }
+
+    /**
+     * Replaces a context by an updated version, creating the context if it does not exist yet.
+     * <p>
+     * With a {@link VersionedStore}, the update is retried until no other writer interfered, so `update` may be
+     * called several times. Otherwise, the context has to be locked by the caller.
+     */
+    private void updateContext(Transaction transaction, String contextName, UnaryOperator<Context> update) {
+        var contextKey = createContextKey(contextName);
+        if (store instanceof VersionedStore) {
+            ((VersionedStore) store).compute(contextKey, current -> {
+                var context = Optional.ofNullable((Context) current).orElseGet(createNewContext(contextName));
+                var newContext = update.apply(context);
+                return transaction.isWriteRecorded() ? newContext : newContext.withIncrementedUpdateCount();
+            });
+            transaction.recordWrite();
+        } else {
+            var context = store.get(contextKey)
+                .map(it -> (Context) it)
+                .orElseGet(createNewContext(contextName));
+            store.put(contextKey, recordWrite(transaction, update.apply(context)));
+        }
+        invalidateSnapshot(contextName);
+    }
+
+    private static Context withTtl(Context context, Duration ttl) {
+        return ttl == null ? context : context.withTtl(ttl);
+    }
+
+    private static Context recordWrite(Transaction transaction, Context context) {
+        return transaction.recordWrite() ? context.withIncrementedUpdateCount() : context;
+    }
+
+    /**
+     * Caches of a single request. Only accessed by the thread handling the request, except for `closed`.
+     */
+    private static class RequestScope {
+        private final String requestId;
+        private final Map<String, Optional<Context>> snapshots = new HashMap<>();
+        private final Map<String, Object> values = new HashMap<>();
+        private Object request;
+        private volatile boolean closed;
+
+        RequestScope(String requestId) {
+            this.requestId = requestId;
+        }
     }
 }
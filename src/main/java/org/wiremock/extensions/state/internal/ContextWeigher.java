@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the heap footprint of stored values in bytes.
+ * <p>
+ * The estimation is based on property count, string lengths and list entries. It is not exact but stable enough to
+ * keep a store within a memory budget. Long lists are estimated by a sample of their entries so a list update does
+ * not need to visit the whole list.
+ */
+public final class ContextWeigher {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int MAP_ENTRY_OVERHEAD = 32;
+    private static final int CONTEXT_OVERHEAD = 64;
+    private static final int DEFAULT_VALUE_WEIGHT = 64;
+    private static final int LIST_SAMPLE_SIZE = 16;
+
+    private ContextWeigher() {
+    }
+
+    /**
+     * @param key   The store key.
+     * @param value The stored value.
+     * @return Estimated size in bytes, at least `1`.
+     */
+    public static int weigh(String key, Object value) {
+        long weight = weigh(key);
+        if (value instanceof Context) {
+            weight += weigh((Context) value);
+        } else if (value instanceof String) {
+            weight += weigh((String) value);
+        } else {
+            weight += DEFAULT_VALUE_WEIGHT;
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, weight));
+    }
+
+    private static long weigh(Context context) {
+        return CONTEXT_OVERHEAD
+            + weigh(context.getContextName())
+            + weigh(context.getProperties())
+            + weigh(context.getList());
+    }
+
+    private static long weigh(List<Map<String, String>> list) {
+        var size = list.size();
+        if (size <= LIST_SAMPLE_SIZE) {
+            long weight = 0;
+            for (var entry : list) {
+                weight += OBJECT_OVERHEAD + weigh(entry);
+            }
+            return weight;
+        }
+        long sampleWeight = 0;
+        var step = size / LIST_SAMPLE_SIZE;
+        for (int i = 0; i < LIST_SAMPLE_SIZE; i++) {
+            sampleWeight += OBJECT_OVERHEAD + weigh(list.get(i * step));
+        }
+        return sampleWeight * size / LIST_SAMPLE_SIZE;
+    }
+
+    private static long weigh(Map<String, String> properties) {
+        long weight = OBJECT_OVERHEAD;
+        for (var entry : properties.entrySet()) {
+            weight += MAP_ENTRY_OVERHEAD + weigh(entry.getKey()) + weigh(entry.getValue());
+        }
+        return weight;
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
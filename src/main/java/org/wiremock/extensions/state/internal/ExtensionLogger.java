@@ -17,20 +17,48 @@ package org.wiremock.extensions.state.internal;
 
 import org.wiremock.extensions.state.internal.model.Context;
 
+import java.util.function.Supplier;
+
 import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
 
+/**
+ * Logs to the WireMock notifier, prefixing messages with the context they relate to.
+ * <p>
+ * Info messages are only built and passed to the notifier if info logging is enabled. Each extension instance has its
+ * own logger, so WireMock servers running in the same JVM do not affect each other's verbosity.
+ */
 public class ExtensionLogger {
 
-    private ExtensionLogger() {
+    public static final String VERBOSE_PROPERTY = "wiremock.state.verbose";
+
+    private final boolean infoEnabled;
 
+    public ExtensionLogger(boolean infoEnabled) {
+        this.infoEnabled = infoEnabled;
     }
 
-    public static ExtensionLogger logger() {
-        return InstanceHolder.instance;
+    /**
+     * @return Whether info logging is enabled if not configured otherwise: `true` unless the system property
+     * `wiremock.state.verbose` is set to `false`.
+     */
+    public static boolean isVerboseByDefault() {
+        return Boolean.parseBoolean(System.getProperty(VERBOSE_PROPERTY, "true"));
+    }
+
+    public boolean isInfoEnabled() {
+        return infoEnabled;
     }
 
     public void info(Context context, String message) {
-        notifier().info(buildMessage(context.getContextName(), message));
+        if (infoEnabled) {
+            notifier().info(buildMessage(context.getContextName(), message));
+        }
+    }
+
+    public void info(Context context, Supplier<String> message) {
+        if (infoEnabled) {
+            notifier().info(buildMessage(context.getContextName(), message.get()));
+        }
     }
 
     public void error(Context context, String message) {
@@ -38,7 +66,15 @@ public class ExtensionLogger {
     }
 
     public void info(String contextName, String message) {
-        notifier().info(buildMessage(contextName, message));
+        if (infoEnabled) {
+            notifier().info(buildMessage(contextName, message));
+        }
+    }
+
+    public void info(String contextName, Supplier<String> message) {
+        if (infoEnabled) {
+            notifier().info(buildMessage(contextName, message.get()));
+        }
     }
 
     public void error(String contextName, String message) {
@@ -46,11 +82,7 @@ public class ExtensionLogger {
     }
 
     private String buildMessage(String contextName, String message) {
-        return String.format("Context '%s': %s", contextName, message);
-    }
-
-    private static final class InstanceHolder {
-        private static final ExtensionLogger instance = new ExtensionLogger();
+        return "Context '" + contextName + "': " + message;
     }
 
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles JSON paths for queries on context lists, keeping compiled paths in a bounded cache keyed by their source.
+ * <p>
+ * Paths selecting a list entry by index and optionally one of its properties (e.g. `[0].id`, `$[-1]['id']`) are
+ * resolved directly on the list. All other paths are evaluated by JsonPath.
+ */
+public class ListPathCompiler {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    private static final Pattern INDEX_PATH = Pattern.compile(
+        "(?:\\$\\.?)?\\[(-?\\d{1,9})](?:\\.([A-Za-z_][A-Za-z0-9_-]*)|\\['([^'\\\\]*)'])?"
+    );
+
+    private final Cache<String, ListPath> paths;
+
+    public ListPathCompiler() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public ListPathCompiler(int maximumSize) {
+        this.paths = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    /**
+     * @param path The JSON path.
+     * @return The compiled path.
+     * @throws com.jayway.jsonpath.InvalidPathException if the path cannot be parsed.
+     */
+    public ListPath compile(String path) {
+        return paths.get(path, ListPathCompiler::createPath);
+    }
+
+    private static ListPath createPath(String path) {
+        var matcher = INDEX_PATH.matcher(path);
+        if (matcher.matches()) {
+            var property = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            return new IndexPath(path, Integer.parseInt(matcher.group(1)), property);
+        }
+        var jsonPath = JsonPath.compile(path);
+        return jsonPath::read;
+    }
+
+    /**
+     * Compiled query on a context list.
+     */
+    public interface ListPath {
+        /**
+         * @param list The list to query.
+         * @return The result of the query.
+         * @throws PathNotFoundException if the path does not select anything.
+         */
+        Object read(List<Map<String, String>> list);
+    }
+
+    private static class IndexPath implements ListPath {
+        private final String path;
+        private final int index;
+        private final String property;
+
+        IndexPath(String path, int index, String property) {
+            this.path = path;
+            this.index = index;
+            this.property = property;
+        }
+
+        @Override
+        public Object read(List<Map<String, String>> list) {
+            var effectiveIndex = index < 0 ? list.size() + index : index;
+            if (effectiveIndex < 0 || effectiveIndex >= list.size()) {
+                throw new PathNotFoundException("No results for path: " + path);
+            }
+            var entry = list.get(effectiveIndex);
+            if (property == null) {
+                return entry;
+            }
+            if (!entry.containsKey(property)) {
+                throw new PathNotFoundException("No results for path: " + path);
+            }
+            return entry.get(property);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+
+import java.util.function.Function;
+
+/**
+ * Keeps objects compiled from extension parameters, so parameters of a stub mapping are only interpreted once.
+ * <p>
+ * Entries are identified by the parameters instance (not by their content) and are dropped once the parameters are
+ * garbage collected, e.g. after the stub mapping was removed.
+ *
+ * @param <T> Type of the compiled object.
+ */
+public class ParametersCache<T> {
+
+    private final Function<Parameters, T> compiler;
+    private final Cache<Parameters, T> compiled = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * @param compiler Function creating the compiled object. Exceptions are passed to the caller and nothing is cached.
+     */
+    public ParametersCache(Function<Parameters, T> compiler) {
+        this.compiler = compiler;
+    }
+
+    public T get(Parameters parameters) {
+        return compiled.get(parameters, compiler);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.HandlebarsOptimizedTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Renders handlebars templates, keeping compiled templates in a bounded cache keyed by their source.
+ * <p>
+ * Sources without handlebars expression are rendered verbatim without involving handlebars.
+ */
+public class TemplateRenderer {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+
+    private final WireMockServices wireMockServices;
+    private final Cache<String, HandlebarsOptimizedTemplate> templates;
+
+    public TemplateRenderer(WireMockServices wireMockServices) {
+        this.wireMockServices = wireMockServices;
+        this.templates = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .recordStats()
+            .build();
+    }
+
+    private static boolean isLiteral(String source) {
+        return !source.contains("{{");
+    }
+
+    public String render(Object model, String template) {
+        if (isLiteral(template)) {
+            return template;
+        }
+        return getTemplate(template).apply(model);
+    }
+
+    /**
+     * Prepares a template for repeated rendering.
+     *
+     * @param source The template source.
+     * @return The compiled template.
+     */
+    public CompiledTemplate compile(String source) {
+        if (isLiteral(source)) {
+            return new LiteralTemplate(source);
+        }
+        return new HandlebarsTemplate(getTemplate(source));
+    }
+
+    private HandlebarsOptimizedTemplate getTemplate(String source) {
+        return templates.get(source, (it) -> wireMockServices.getTemplateEngine().getUncachedTemplate(it));
+    }
+
+    /**
+     * @return Hit/miss statistics of the compiled template cache.
+     */
+    public CacheStats getStatistics() {
+        return templates.stats();
+    }
+
+    private static class LiteralTemplate implements CompiledTemplate {
+        private final String value;
+
+        LiteralTemplate(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String render(Supplier<?> model) {
+            return value;
+        }
+
+        @Override
+        public boolean isLiteral() {
+            return true;
+        }
+    }
+
+    private static class HandlebarsTemplate implements CompiledTemplate {
+        private final HandlebarsOptimizedTemplate template;
+
+        HandlebarsTemplate(HandlebarsOptimizedTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        public String render(Supplier<?> model) {
+            return template.apply(model.get());
+        }
+
+        @Override
+        public boolean isLiteral() {
+            return false;
+        }
+    }
+}
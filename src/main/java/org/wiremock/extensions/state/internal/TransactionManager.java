@@ -15,56 +15,104 @@
  */
 package org.wiremock.extensions.state.internal;
 
-import com.github.tomakehurst.wiremock.store.Store;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.wiremock.extensions.state.internal.model.Transaction;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
+/**
+ * Keeps track of the contexts touched by a request and serializes access to each context.
+ * <p>
+ * Locks are striped by context name: operations on the same context are mutually exclusive while operations on
+ * different contexts only contend if their names hash to the same stripe.
+ * <p>
+ * Transactions are kept in a registry of their own, separate from the context store. Entries are removed once the
+ * request completes (see {@link #deleteTransactions(String)}). The registry is bounded in size and idle time in case a
+ * request never completes.
+ */
 public class TransactionManager {
 
-    private final String TRANSACTION_KEY_PREFIX = "transaction:";
-    private final Store<String, Object> store;
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+    private static final int MAX_OPEN_REQUESTS = 100_000;
+    private static final Duration MAX_REQUEST_IDLE_TIME = Duration.ofMinutes(10);
+
+    private final Object[] contextLocks;
+    private final Cache<String, Map<String, Transaction>> transactions = Caffeine.newBuilder()
+        .maximumSize(MAX_OPEN_REQUESTS)
+        .expireAfterAccess(MAX_REQUEST_IDLE_TIME)
+        .build();
+
+    public TransactionManager() {
+        this(DEFAULT_LOCK_STRIPES);
+    }
+
+    /**
+     * @param lockStripes Number of locks contexts are distributed on. `1` serializes all context operations.
+     */
+    public TransactionManager(int lockStripes) {
+        if (lockStripes < 1) {
+            throw new IllegalArgumentException("lockStripes has to be positive");
+        }
+        this.contextLocks = new Object[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            contextLocks[i] = new Object();
+        }
+    }
 
-    public TransactionManager(Store<String, Object> store) {
-        this.store = store;
+    private Object getContextLock(String contextName) {
+        return contextLocks[Math.floorMod(contextName.hashCode(), contextLocks.length)];
     }
 
     public void withTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            var contextTransaction = requestTransactions.getOrDefault(contextName, new Transaction(contextName));
-            try {
-                consumer.accept(contextTransaction);
-            } finally {
-                requestTransactions.put(contextName, contextTransaction);
-                store.put(transactionKey, requestTransactions);
-            }
+        var requestTransactions = transactions.get(requestId, (key) -> new ConcurrentHashMap<>());
+        synchronized (getContextLock(contextName)) {
+            var contextTransaction = requestTransactions.computeIfAbsent(contextName, Transaction::new);
+            consumer.accept(contextTransaction);
         }
     }
 
+    /**
+     * Passes the transaction of a request on a context without locking the context.
+     * <p>
+     * For stores handling concurrent updates on their own (see {@link org.wiremock.extensions.state.VersionedStore}).
+     */
+    public void withUnlockedTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
+        var requestTransactions = transactions.get(requestId, (key) -> new ConcurrentHashMap<>());
+        consumer.accept(requestTransactions.computeIfAbsent(contextName, Transaction::new));
+    }
+
     public void deleteTransaction(String requestId, String contextName) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            requestTransactions.remove(contextName);
-        }
+        findRequestTransactions(requestId).ifPresent(it -> it.remove(contextName));
+    }
+
+    /**
+     * Removes all transactions of a request.
+     *
+     * @param requestId ID of the completed request.
+     */
+    public void deleteTransactions(String requestId) {
+        transactions.invalidate(requestId);
     }
 
     public Set<String> getContextNamesByRequestId(String requestId) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            return new HashSet<>(requestTransactions.keySet());
-        }
+        return findRequestTransactions(requestId).map(it -> new HashSet<>(it.keySet())).orElseGet(HashSet::new);
+    }
+
+    /**
+     * @return Number of contexts touched by open requests.
+     */
+    public long getTransactionCount() {
+        return transactions.asMap().values().stream().mapToLong(Map::size).sum();
     }
 
-    private String createTransactionKey(String requestId) {
-        return TRANSACTION_KEY_PREFIX + requestId;
+    private Optional<Map<String, Transaction>> findRequestTransactions(String requestId) {
+        return Optional.ofNullable(transactions.getIfPresent(requestId));
     }
 }
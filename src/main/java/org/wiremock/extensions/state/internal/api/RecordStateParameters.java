@@ -22,6 +22,7 @@ import java.util.Map;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class RecordStateParameters {
     private String context;
+    private String ttl;
 
     private Map<String, String> state;
     private ListParameters list;
@@ -42,6 +43,14 @@ public class RecordStateParameters {
         this.context = context;
     }
 
+    public String getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(String ttl) {
+        this.ttl = ttl;
+    }
+
     public Map<String, String> getState() {
         return state;
     }
@@ -15,41 +15,61 @@
  */
 package org.wiremock.extensions.state.internal.model;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Immutable version of a context.
+ * <p>
+ * Changes create a new version which shares all unchanged parts with its predecessor, so a context can be handed out
+ * to readers without copying it.
+ */
 public class Context {
 
     private final String contextName;
-    private final Map<String, String> properties = new HashMap<>();
-    private final LinkedList<Map<String, String>> list = new LinkedList<>();
-    private final LinkedList<String> requests = new LinkedList<>();
-    private Long updateCount = 0L;
-
-    public Context(Context other) {
-        this.contextName = other.contextName;
-        this.properties.putAll(other.properties);
-        this.list.addAll(other.list.stream().map(HashMap::new).collect(Collectors.toList()));
-        this.requests.addAll(other.requests);
-        this.updateCount = other.updateCount;
-    }
+    private final Map<String, String> properties;
+    private final ChunkedList<Map<String, String>> list;
+    private final long updateCount;
+    private final Duration ttl;
 
     public Context(String contextName) {
+        this(contextName, Map.of(), ChunkedList.empty(), 0L, null);
+    }
+
+    private Context(String contextName, Map<String, String> properties, ChunkedList<Map<String, String>> list, long updateCount, Duration ttl) {
         this.contextName = contextName;
+        this.properties = properties;
+        this.list = list;
+        this.updateCount = updateCount;
+        this.ttl = ttl;
     }
 
-    public String getContextName() {
-        return contextName;
+    /**
+     * Restores a context from its parts, e.g. after deserialization.
+     *
+     * @param contextName Name of the context.
+     * @param properties  Properties. Ownership is transferred to the context: the map must not be modified afterwards.
+     * @param list        List of the context.
+     * @param updateCount Number of updates.
+     * @param ttl         Time to live - or `null`.
+     * @return The restored context.
+     */
+    public static Context restore(
+        String contextName,
+        Map<String, String> properties,
+        ChunkedList<Map<String, String>> list,
+        long updateCount,
+        Duration ttl
+    ) {
+        return new Context(contextName, Collections.unmodifiableMap(properties), list, updateCount, ttl);
     }
 
-    public Long getUpdateCount() {
-        return updateCount;
+    public String getContextName() {
+        return contextName;
     }
 
-    public Long incUpdateCount() {
-        updateCount = updateCount + 1;
+    public long getUpdateCount() {
         return updateCount;
     }
 
@@ -57,10 +77,41 @@ public class Context {
         return properties;
     }
 
-    public LinkedList<Map<String, String>> getList() {
+    public ChunkedList<Map<String, String>> getList() {
         return list;
     }
 
+    /**
+     * @return Time to live of the context after its last write - or `null` for the store's default.
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @param properties New properties. Ownership is transferred to the context: the map must not be modified afterwards.
+     * @return New version of the context with the given properties.
+     */
+    public Context withProperties(Map<String, String> properties) {
+        return new Context(contextName, Collections.unmodifiableMap(properties), list, updateCount, ttl);
+    }
+
+    /**
+     * @param list New list. Ownership of the entries is transferred to the context: they must not be modified afterwards.
+     * @return New version of the context with the given list.
+     */
+    public Context withList(ChunkedList<Map<String, String>> list) {
+        return new Context(contextName, properties, list, updateCount, ttl);
+    }
+
+    public Context withIncrementedUpdateCount() {
+        return new Context(contextName, properties, list, updateCount + 1, ttl);
+    }
+
+    public Context withTtl(Duration ttl) {
+        return new Context(contextName, properties, list, updateCount, ttl);
+    }
+
     @Override
     public String toString() {
         return "Context{" +
@@ -68,6 +119,7 @@ public class Context {
             ", properties=" + properties +
             ", list=" + list +
             ", updateCount=" + updateCount +
+            ", ttl=" + ttl +
             '}';
     }
 }
@@ -21,37 +21,46 @@ import com.github.tomakehurst.wiremock.http.LoggedResponse;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Template model of a response.
+ * <p>
+ * Headers and body are only extracted from the response when a template accesses them.
+ */
 public final class ResponseTemplateModel {
-    private final Map<String, ListOrSingle<String>> headers;
-    private final String body;
+    private final LoggedResponse response;
+    private Map<String, ListOrSingle<String>> headers;
+    private String body;
 
-    private ResponseTemplateModel(Map<String, ListOrSingle<String>> headers, String body) {
-        this.headers = headers;
-        this.body = body;
+    private ResponseTemplateModel(LoggedResponse response) {
+        this.response = response;
     }
 
     public static ResponseTemplateModel from(LoggedResponse response) {
-
-        var headers = response
-            .getHeaders()
-            .keys()
-            .stream()
-            .collect(Collectors.toMap(
-                it -> it,
-                it -> ListOrSingle.of(
-                    response.getHeaders()
-                        .getHeader(it)
-                        .values()
-                ))
-            );
-        return new ResponseTemplateModel(headers, response.getBodyAsString());
+        return new ResponseTemplateModel(response);
     }
 
     public Map<String, ListOrSingle<String>> getHeaders() {
+        if (headers == null) {
+            headers = response
+                .getHeaders()
+                .keys()
+                .stream()
+                .collect(Collectors.toMap(
+                    it -> it,
+                    it -> ListOrSingle.of(
+                        response.getHeaders()
+                            .getHeader(it)
+                            .values()
+                    ))
+                );
+        }
         return this.headers;
     }
 
     public String getBody() {
+        if (body == null) {
+            body = response.getBodyAsString();
+        }
         return this.body;
     }
 }
@@ -15,8 +15,6 @@
  */
 package org.wiremock.extensions.state.internal.model;
 
-import java.util.function.Consumer;
-
 public class Transaction {
     private final String contextName;
     private Boolean writeRecorded = false;
@@ -25,12 +23,26 @@ public class Transaction {
         this.contextName = contextName;
     }
 
-    public void recordWrite(Runnable runnable) {
-        if(!writeRecorded) {
-            runnable.run();
-            writeRecorded = true;
+    /**
+     * Records a write to the context.
+     *
+     * @return `true` if this is the first write within the transaction.
+     */
+    public boolean recordWrite() {
+        if (writeRecorded) {
+            return false;
         }
+        writeRecorded = true;
+        return true;
+    }
+
+    /**
+     * @return `true` if a write to the context has been recorded within the transaction.
+     */
+    public boolean isWriteRecorded() {
+        return writeRecorded;
     }
+
     public String getContextName() {
         return contextName;
     }
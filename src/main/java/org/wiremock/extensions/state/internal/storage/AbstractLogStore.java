@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.wiremock.extensions.state.NamespacedStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Store keeping contexts serialized in a {@link RecordLog}.
+ * <p>
+ * Only keys, their record addresses and a bounded set of recently used contexts are kept on the heap. Contexts are
+ * decoded on first access. Values other than contexts are kept on the heap as they are.
+ * <p>
+ * If the log is persistent, removals are recorded as tombstones so a reopened log does not resurrect removed
+ * contexts.
+ */
+public abstract class AbstractLogStore implements NamespacedStore {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    protected final RecordLog log;
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean persistent;
+    private final Cache<String, Context> hotSet;
+    private final ConcurrentMap<String, ConcurrentMap<String, Object>> namespaces = new ConcurrentHashMap<>();
+    private final RecordLog.Index index = new RecordLog.Index() {
+        @Override
+        public boolean isLive(String key, byte type, long address) {
+            if (type == RecordLog.TYPE_TOMBSTONE) {
+                // a tombstone is needed as long as older segments might contain a previous version
+                return getEntry(key) == null && log.hasOlderSegments(address);
+            }
+            return Long.valueOf(address).equals(getEntry(key));
+        }
+
+        @Override
+        public void moved(String key, long oldAddress, long newAddress) {
+            var namespace = namespaces.get(NamespacedStore.getNamespace(key));
+            if (namespace != null) {
+                namespace.replace(key, oldAddress, newAddress);
+            }
+        }
+    };
+
+    /**
+     * @param log        Log to store contexts in.
+     * @param hotSetSize Number of recently used contexts kept decoded on the heap.
+     * @param persistent `true` if the log outlives the store and removals have to be recorded.
+     */
+    protected AbstractLogStore(RecordLog log, long hotSetSize, boolean persistent) {
+        this.log = log;
+        this.persistent = persistent;
+        this.hotSet = Caffeine.newBuilder().maximumSize(hotSetSize).build();
+    }
+
+    /**
+     * Rebuilds the key index from the records of a reopened log. Payloads are not decoded.
+     */
+    protected void restoreIndex() {
+        lock.writeLock().lock();
+        try {
+            log.forEachRecord((key, type, address, payload) -> {
+                if (type == RecordLog.TYPE_VALUE) {
+                    getNamespace(key).put(key, address);
+                } else {
+                    var namespace = namespaces.get(NamespacedStore.getNamespace(key));
+                    if (namespace != null) {
+                        namespace.remove(key);
+                    }
+                }
+            });
+            namespaces.values().forEach(namespace -> namespace.values().forEach(it -> log.restoreLive((Long) it)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private ConcurrentMap<String, Object> getNamespace(String key) {
+        return namespaces.computeIfAbsent(NamespacedStore.getNamespace(key), (it) -> new ConcurrentHashMap<>());
+    }
+
+    private Object getEntry(String key) {
+        var namespace = namespaces.get(NamespacedStore.getNamespace(key));
+        return namespace == null ? null : namespace.get(key);
+    }
+
+    @Override
+    public Stream<String> getAllKeys() {
+        return namespaces.values().stream().flatMap(it -> it.keySet().stream());
+    }
+
+    @Override
+    public Stream<String> getKeys(String namespace) {
+        return Optional.ofNullable(namespaces.get(namespace))
+            .map(it -> it.keySet().stream())
+            .orElseGet(Stream::empty);
+    }
+
+    @Override
+    public Optional<Object> get(String key) {
+        var entry = getEntry(key);
+        if (entry == null) {
+            return Optional.empty();
+        } else if (entry instanceof HeapValue) {
+            return Optional.of(((HeapValue) entry).value);
+        }
+        var context = hotSet.getIfPresent(key);
+        if (context != null) {
+            return Optional.of(context);
+        }
+        lock.readLock().lock();
+        try {
+            // re-read: the entry might have been changed or moved meanwhile
+            entry = getEntry(key);
+            if (entry instanceof Long) {
+                context = ContextCodec.decode(log.readPayload((Long) entry));
+                hotSet.put(key, context);
+                return Optional.of(context);
+            }
+            return Optional.ofNullable(entry).map(it -> ((HeapValue) it).value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String key, Object content) {
+        var payload = content instanceof Context ? ContextCodec.encode((Context) content) : null;
+        lock.writeLock().lock();
+        try {
+            Object entry;
+            if (payload != null) {
+                entry = log.append(key, RecordLog.TYPE_VALUE, payload, index);
+                hotSet.put(key, (Context) content);
+            } else {
+                entry = new HeapValue(content);
+                hotSet.invalidate(key);
+            }
+            var previous = getNamespace(key).put(key, entry);
+            if (previous instanceof Long) {
+                log.markDead((Long) previous);
+                if (persistent && payload == null) {
+                    // the new value is not persisted: the previous version must not be restored
+                    appendTombstone(key);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            var namespace = namespaces.get(NamespacedStore.getNamespace(key));
+            var previous = namespace == null ? null : namespace.remove(key);
+            if (previous instanceof Long) {
+                log.markDead((Long) previous);
+                if (persistent) {
+                    appendTombstone(key);
+                }
+            }
+            hotSet.invalidate(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendTombstone(String key) {
+        log.markDead(log.append(key, RecordLog.TYPE_TOMBSTONE, EMPTY, index));
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            namespaces.clear();
+            hotSet.invalidateAll();
+            log.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of bytes allocated for stored contexts.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return log.getAllocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of bytes used by current contexts.
+     */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return log.getLiveBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class HeapValue {
+        private final Object value;
+
+        HeapValue(Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import org.wiremock.extensions.state.internal.model.ChunkedList;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary representation of a {@link Context}.
+ * <p>
+ * Layout (all numbers are unsigned variable-length integers, strings are UTF-8 prefixed by their length + 1, `0`
+ * denoting `null`):
+ * <pre>
+ * version | name | updateCount | ttl in millis + 1 (0 = none) | property count | (key | value)* | list size | (entry size | (key | value)*)*
+ * </pre>
+ * Longer ttls are stored as the longest duration representable in nanoseconds (about 292 years), in line with
+ * {@link org.wiremock.extensions.state.CaffeineStore}.
+ */
+public final class ContextCodec {
+
+    private static final int VERSION = 1;
+    private static final Duration MAXIMUM_TTL = Duration.ofNanos(Long.MAX_VALUE);
+
+    private ContextCodec() {
+    }
+
+    public static byte[] encode(Context context) {
+        var out = new Output();
+        out.writeVarLong(VERSION);
+        out.writeString(context.getContextName());
+        out.writeVarLong(context.getUpdateCount());
+        out.writeVarLong(context.getTtl() == null ? 0 : encodeTtl(context.getTtl()));
+        out.writeMap(context.getProperties());
+        out.writeVarLong(context.getList().size());
+        for (var entry : context.getList()) {
+            out.writeMap(entry);
+        }
+        return out.toByteArray();
+    }
+
+    private static long encodeTtl(Duration ttl) {
+        return (ttl.compareTo(MAXIMUM_TTL) > 0 ? MAXIMUM_TTL : ttl).toMillis() + 1;
+    }
+
+    /**
+     * @param buffer Buffer positioned at the start of an encoded context. The position is advanced past the context.
+     * @return The decoded context.
+     */
+    public static Context decode(ByteBuffer buffer) {
+        var version = readVarLong(buffer);
+        if (version != VERSION) {
+            throw new IllegalStateException("unsupported context encoding version: " + version);
+        }
+        var contextName = readString(buffer);
+        var updateCount = readVarLong(buffer);
+        var ttlMillis = readVarLong(buffer);
+        var properties = readMap(buffer);
+        var listSize = (int) readVarLong(buffer);
+        var list = new ArrayList<Map<String, String>>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            list.add(Collections.unmodifiableMap(readMap(buffer)));
+        }
+        return Context.restore(
+            contextName,
+            properties,
+            ChunkedList.copyOf(list),
+            updateCount,
+            ttlMillis == 0 ? null : Duration.ofMillis(ttlMillis - 1)
+        );
+    }
+
+    private static Map<String, String> readMap(ByteBuffer buffer) {
+        var size = (int) readVarLong(buffer);
+        var map = new HashMap<String, String>(Math.max(4, size * 2));
+        for (int i = 0; i < size; i++) {
+            map.put(readString(buffer), readString(buffer));
+        }
+        return map;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var length = (int) readVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        var bytes = new byte[length - 1];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = buffer.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("malformed variable-length integer");
+    }
+
+    private static final class Output {
+        private byte[] bytes = new byte[128];
+        private int size;
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            var encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length + 1L);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        void writeMap(Map<String, String> map) {
+            writeVarLong(map.size());
+            for (var entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
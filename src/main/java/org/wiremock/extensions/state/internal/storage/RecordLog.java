@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of keyed records, stored in fixed-size segments.
+ * <p>
+ * A record is addressed by its segment and offset (see {@link #address(int, int)}). Records are never modified: a new
+ * version of a key is appended and the old record is marked dead. Once the log runs out of space, segments with mostly
+ * dead records are compacted by moving their live records to the end of the log.
+ * <p>
+ * Record layout: `length (int, whole record) | type (byte) | key length (int) | key (UTF-8) | payload`. The length is
+ * written last, so a record is complete once its length is set.
+ * <p>
+ * Not thread-safe: appending, marking and compacting require exclusive access. Reads may run concurrently with each
+ * other.
+ */
+public final class RecordLog {
+
+    public static final byte TYPE_VALUE = 1;
+    public static final byte TYPE_TOMBSTONE = 2;
+
+    static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final int segmentSize;
+    private final int maximumSegments;
+    private final SegmentStorage storage;
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private int nextSegmentId;
+
+    /**
+     * @param segmentSize     Size of a segment in bytes.
+     * @param maximumSegments Maximum number of segments allocated at the same time.
+     * @param storage         Provider of segment memory.
+     */
+    public RecordLog(int segmentSize, int maximumSegments, SegmentStorage storage) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+        }
+        if (maximumSegments < 2) {
+            throw new IllegalArgumentException("at least two segments are required for compaction");
+        }
+        this.segmentSize = segmentSize;
+        this.maximumSegments = maximumSegments;
+        this.storage = storage;
+    }
+
+    public static long address(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xffffffffL);
+    }
+
+    private static int segmentId(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Adds a segment which already contains records, e.g. after reopening a persistent log. Segments have to be added
+     * in the order they were written. The last added segment becomes the active one.
+     *
+     * @param segmentId     ID of the segment.
+     * @param buffer        Content of the segment.
+     * @param writePosition End of the last record in the segment.
+     */
+    public void restoreSegment(int segmentId, ByteBuffer buffer, int writePosition) {
+        var segment = new Segment(segmentId, buffer);
+        segment.writePosition = writePosition;
+        segment.deadBytes = writePosition;
+        segments.add(segment);
+        active = segment;
+        nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+    }
+
+    /**
+     * Determines the end of the last complete record of a segment written before.
+     *
+     * @param buffer Content of the segment, unused space being zeroed.
+     * @return Offset after the last complete record.
+     */
+    public static int findWritePosition(ByteBuffer buffer) {
+        var offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            var length = buffer.getInt(offset);
+            if (length < HEADER_SIZE || length > buffer.capacity() - offset) {
+                break;
+            }
+            offset += length;
+        }
+        return offset;
+    }
+
+    /**
+     * Marks a restored record as live. All records of restored segments are considered dead until marked live.
+     *
+     * @param address Address of the record.
+     */
+    public void restoreLive(long address) {
+        var segment = getSegment(segmentId(address));
+        segment.deadBytes -= segment.buffer.getInt(offset(address));
+    }
+
+    /**
+     * Appends a record, compacting the log if it runs out of space.
+     *
+     * @param key     Key of the record.
+     * @param type    Type of the record, see {@link #TYPE_VALUE} and {@link #TYPE_TOMBSTONE}.
+     * @param payload Payload of the record.
+     * @param index   Index of live records, used for compaction.
+     * @return Address of the new record.
+     */
+    public long append(String key, byte type, byte[] payload, Index index) {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var length = HEADER_SIZE + keyBytes.length + payload.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException(String.format("record of %d bytes exceeds segment size of %d bytes", length, segmentSize));
+        }
+        ensureCapacity(length, index);
+        return write(active, type, keyBytes, ByteBuffer.wrap(payload));
+    }
+
+    private long write(Segment segment, byte type, byte[] keyBytes, ByteBuffer payload) {
+        var length = HEADER_SIZE + keyBytes.length + payload.remaining();
+        var offset = segment.writePosition;
+        var target = segment.buffer.duplicate();
+        target.position(offset + Integer.BYTES);
+        target.put(type);
+        target.putInt(keyBytes.length);
+        target.put(keyBytes);
+        target.put(payload);
+        target.putInt(offset, length);
+        segment.writePosition += length;
+        return address(segment.id, offset);
+    }
+
+    private void ensureCapacity(int length, Index index) {
+        if (active != null && active.remaining() >= length) {
+            return;
+        }
+        if (segments.size() >= maximumSegments) {
+            compact(index);
+        }
+        if (active == null || active.remaining() < length) {
+            if (segments.size() >= maximumSegments) {
+                throw new IllegalStateException(String.format("store is full: %d segments of %d bytes in use", segments.size(), segmentSize));
+            }
+            active = allocate();
+        }
+    }
+
+    private Segment allocate() {
+        var segmentId = nextSegmentId++;
+        var segment = new Segment(segmentId, storage.allocate(segmentId, segmentSize));
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Moves the live records of segments with mostly dead records to a new segment and releases them.
+     */
+    private void compact(Index index) {
+        var candidates = new ArrayList<Segment>();
+        for (var segment : segments) {
+            if (segment != active && segment.deadBytes >= segment.writePosition * COMPACTION_THRESHOLD) {
+                candidates.add(segment);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        // Live records are copied before their segment is released, so compaction temporarily needs one more segment.
+        var target = new Segment[1];
+        for (var segment : candidates) {
+            segments.remove(segment);
+            forEachRecord(segment, (key, type, address, payload) -> {
+                if (!index.isLive(key, type, address)) {
+                    return;
+                }
+                var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                if (target[0] == null || target[0].remaining() < HEADER_SIZE + keyBytes.length + payload.remaining()) {
+                    target[0] = allocate();
+                }
+                index.moved(key, address, write(target[0], type, keyBytes, payload));
+            });
+            storage.release(segment.id, segment.buffer);
+        }
+        if (target[0] != null) {
+            active = target[0];
+        }
+    }
+
+    /**
+     * @param address Address of a record.
+     * @return Read-only view of the record's payload.
+     */
+    public ByteBuffer readPayload(long address) {
+        var segment = getSegment(segmentId(address));
+        var offset = offset(address);
+        var view = segment.buffer.asReadOnlyBuffer();
+        var length = view.getInt(offset);
+        var keyLength = view.getInt(offset + Integer.BYTES + Byte.BYTES);
+        view.limit(offset + length);
+        view.position(offset + HEADER_SIZE + keyLength);
+        return view.slice();
+    }
+
+    /**
+     * Marks a record as dead, i.e. replaced or removed.
+     *
+     * @param address Address of the record.
+     */
+    public void markDead(long address) {
+        var segment = getSegment(segmentId(address));
+        segment.deadBytes += segment.buffer.getInt(offset(address));
+    }
+
+    /**
+     * @param address Address of a record.
+     * @return `true` if a segment older than the one of the record exists.
+     */
+    public boolean hasOlderSegments(long address) {
+        var segmentId = segmentId(address);
+        for (var segment : segments) {
+            if (segment.id < segmentId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes changes of all segments to the underlying storage.
+     */
+    public void flush() {
+        segments.forEach(segment -> storage.flush(segment.id, segment.buffer));
+    }
+
+    /**
+     * Visits all records of all segments in the order they were written.
+     *
+     * @param visitor Visitor to call for every record.
+     */
+    public void forEachRecord(RecordVisitor visitor) {
+        for (var segment : segments) {
+            forEachRecord(segment, visitor);
+        }
+    }
+
+    private void forEachRecord(Segment segment, RecordVisitor visitor) {
+        var view = segment.buffer.asReadOnlyBuffer();
+        var offset = 0;
+        while (offset < segment.writePosition) {
+            var length = view.getInt(offset);
+            var type = view.get(offset + Integer.BYTES);
+            var keyLength = view.getInt(offset + Integer.BYTES + Byte.BYTES);
+            var keyBytes = new byte[keyLength];
+            view.position(offset + HEADER_SIZE);
+            view.get(keyBytes);
+            view.limit(offset + length);
+            var payload = view.slice();
+            view.limit(view.capacity());
+            visitor.visit(new String(keyBytes, StandardCharsets.UTF_8), type, address(segment.id, offset), payload);
+            offset += length;
+        }
+    }
+
+    /**
+     * Releases all segments.
+     */
+    public void clear() {
+        segments.forEach(segment -> storage.release(segment.id, segment.buffer));
+        segments.clear();
+        active = null;
+    }
+
+    /**
+     * Forgets all segments without releasing them, e.g. when closing a persistent log.
+     */
+    public void detach() {
+        segments.clear();
+        active = null;
+    }
+
+    /**
+     * @return Number of bytes of all allocated segments.
+     */
+    public long getAllocatedBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    /**
+     * @return Number of bytes of live records.
+     */
+    public long getLiveBytes() {
+        long liveBytes = 0;
+        for (var segment : segments) {
+            liveBytes += segment.writePosition - segment.deadBytes;
+        }
+        return liveBytes;
+    }
+
+    private Segment getSegment(int segmentId) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            var segment = segments.get(i);
+            if (segment.id == segmentId) {
+                return segment;
+            }
+        }
+        throw new IllegalStateException("unknown segment: " + segmentId);
+    }
+
+    /**
+     * Provides the memory of segments, e.g. direct buffers or mapped files.
+     */
+    public interface SegmentStorage {
+        ByteBuffer allocate(int segmentId, int size);
+
+        void release(int segmentId, ByteBuffer buffer);
+
+        default void flush(int segmentId, ByteBuffer buffer) {
+        }
+    }
+
+    /**
+     * Index of live records, consulted and updated during compaction.
+     */
+    public interface Index {
+        boolean isLive(String key, byte type, long address);
+
+        void moved(String key, long oldAddress, long newAddress);
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(String key, byte type, long address, ByteBuffer payload);
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final ByteBuffer buffer;
+        private int writePosition;
+        private long deadBytes;
+
+        Segment(int id, ByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of context changes with snapshots.
+ * <p>
+ * Changes are appended to log files (`wal-&lt;id&gt;.log`). A snapshot (`snapshot-&lt;id&gt;.snap`) contains all
+ * contexts at the time log `id` was started, possibly including some changes of log `id` and later. As changes
+ * contain complete contexts, replaying them again is harmless: recovery loads the latest snapshot and replays log `id`
+ * and all later logs.
+ * <p>
+ * Record layout: `length (int, after crc) | crc32 (int) | type (byte) | key length (int) | key (UTF-8) | context`.
+ * Replaying a log stops at the first incomplete or corrupted record.
+ * <p>
+ * Not thread-safe.
+ */
+public final class WriteAheadLog implements AutoCloseable {
+
+    public static final byte TYPE_PUT = 1;
+    public static final byte TYPE_REMOVE = 2;
+    public static final byte TYPE_CLEAR = 3;
+
+    private static final Pattern LOG_FILE = Pattern.compile("wal-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{16})\\.snap");
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private FileChannel channel;
+    private long logId;
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    private Path getLogFile(long id) {
+        return directory.resolve(String.format("wal-%016d.log", id));
+    }
+
+    private Path getSnapshotFile(long id) {
+        return directory.resolve(String.format("snapshot-%016d.snap", id));
+    }
+
+    private List<Long> findIds(Pattern pattern) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files
+                .map(it -> pattern.matcher(it.getFileName().toString()))
+                .filter(Matcher::matches)
+                .map(it -> Long.valueOf(it.group(1)))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Replays the latest snapshot and all later logs, then starts a new log.
+     *
+     * @param visitor Receiver of the recovered changes.
+     */
+    public void recover(Visitor visitor) throws IOException {
+        var snapshotIds = findIds(SNAPSHOT_FILE);
+        var firstLogId = 0L;
+        if (!snapshotIds.isEmpty()) {
+            firstLogId = snapshotIds.get(snapshotIds.size() - 1);
+            replay(getSnapshotFile(firstLogId), visitor);
+        }
+        var lastLogId = firstLogId - 1;
+        for (var id : findIds(LOG_FILE)) {
+            if (id >= firstLogId) {
+                replay(getLogFile(id), visitor);
+                lastLogId = id;
+            }
+        }
+        open(Math.max(firstLogId, lastLogId + 1));
+    }
+
+    private void replay(Path file, Visitor visitor) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        var crc = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            var length = buffer.getInt();
+            var checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+            var record = buffer.slice();
+            record.limit(length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return;
+            }
+            try {
+                var type = record.get();
+                var keyBytes = new byte[record.getInt()];
+                record.get(keyBytes);
+                var key = new String(keyBytes, StandardCharsets.UTF_8);
+                if (type == TYPE_PUT) {
+                    visitor.put(key, ContextCodec.decode(record));
+                } else if (type == TYPE_REMOVE) {
+                    visitor.remove(key);
+                } else if (type == TYPE_CLEAR) {
+                    visitor.clear();
+                }
+            } catch (BufferUnderflowException | IllegalStateException ex) {
+                return;
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private void open(long id) throws IOException {
+        logId = id;
+        channel = FileChannel.open(getLogFile(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends changes and forces them to disk.
+     *
+     * @param entries Changes to append.
+     */
+    public void append(Collection<Entry> entries) throws IOException {
+        var records = new ByteBuffer[entries.size()];
+        var i = 0;
+        for (var entry : entries) {
+            records[i++] = encode(entry.type, entry.key, entry.context);
+        }
+        write(channel, records);
+        channel.force(false);
+    }
+
+    private static void write(FileChannel target, ByteBuffer[] records) throws IOException {
+        var remaining = 0L;
+        for (var record : records) {
+            remaining += record.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= target.write(records);
+        }
+    }
+
+    private static ByteBuffer encode(byte type, String key, Context context) {
+        var keyBytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+        var payload = context == null ? new byte[0] : ContextCodec.encode(context);
+        var length = Byte.BYTES + Integer.BYTES + keyBytes.length + payload.length;
+        var buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.put(payload);
+        var crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, length);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Starts a new log. Further changes are appended to the new log.
+     *
+     * @return ID of the new log, to be passed to {@link #writeSnapshot(long, Stream)}.
+     */
+    public long roll() throws IOException {
+        channel.close();
+        open(logId + 1);
+        return logId;
+    }
+
+    /**
+     * Writes a snapshot of all contexts. Afterwards, older snapshots and logs are deleted.
+     * <p>
+     * The contexts have to be taken after the log `id` was started by {@link #roll()}, so changes missing in the
+     * snapshot are part of that log.
+     *
+     * @param id       ID of the log started before taking the snapshot.
+     * @param contexts The current contexts.
+     */
+    public void writeSnapshot(long id, Stream<Map.Entry<String, Context>> contexts) throws IOException {
+        var temporary = directory.resolve(getSnapshotFile(id).getFileName() + ".tmp");
+        try (var target = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var out = new BufferedOutputStream(Channels.newOutputStream(target));
+            var iterator = contexts.iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                var record = encode(TYPE_PUT, entry.getKey(), entry.getValue());
+                out.write(record.array(), 0, record.limit());
+            }
+            out.flush();
+            target.force(true);
+        }
+        Files.move(temporary, getSnapshotFile(id), StandardCopyOption.ATOMIC_MOVE);
+        for (var snapshotId : findIds(SNAPSHOT_FILE)) {
+            if (snapshotId < id) {
+                Files.deleteIfExists(getSnapshotFile(snapshotId));
+            }
+        }
+        for (var previousLogId : findIds(LOG_FILE)) {
+            if (previousLogId < id) {
+                Files.deleteIfExists(getLogFile(previousLogId));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    public static final class Entry {
+        private final byte type;
+        private final String key;
+        private final Context context;
+
+        public Entry(byte type, String key, Context context) {
+            this.type = type;
+            this.key = key;
+            this.context = context;
+        }
+    }
+
+    public interface Visitor {
+        void put(String key, Context context);
+
+        void remove(String key);
+
+        void clear();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.ContextWeigher;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CaffeineStoreTest {
+
+    @Test
+    void test_namespacesAreIsolated_ok() {
+        var store = new CaffeineStore();
+        var context = new Context("one");
+        var other = new Context("other");
+
+        store.put("context:one", context);
+        store.put("other:one", other);
+
+        assertThat(store.get("context:one")).containsSame(context);
+        assertThat(store.get("other:one")).containsSame(other);
+        assertThat(store.getKeys("context")).containsExactly("context:one");
+        assertThat(store.getKeys("other")).containsExactly("other:one");
+        assertThat(store.getKeys("unknown")).isEmpty();
+        assertThat(store.getAllKeys()).containsExactlyInAnyOrder("context:one", "other:one");
+
+        store.remove("context:one");
+
+        assertThat(store.get("context:one")).isEmpty();
+        assertThat(store.get("other:one")).containsSame(other);
+        assertThat(store.getAllKeys()).containsExactly("other:one");
+    }
+
+    @Test
+    void test_clearRemovesAllNamespaces_ok() {
+        var store = new CaffeineStore();
+        store.put("context:one", new Context("one"));
+        store.put("context:two", new Context("two"));
+        store.put("other:one", new Context("other"));
+
+        store.clear();
+
+        assertThat(store.getAllKeys()).isEmpty();
+        assertThat(store.getKeys("context")).isEmpty();
+        assertThat(store.getKeys("other")).isEmpty();
+        assertThat(store.get("other:one")).isEmpty();
+    }
+
+    @Test
+    void test_ttlBeyondNanosecondRange_ok() {
+        var store = new CaffeineStore();
+        var context = new Context("one").withTtl(Duration.ofSeconds(Long.MAX_VALUE));
+
+        store.put("context:one", context);
+
+        assertThat(store.get("context:one")).containsSame(context);
+    }
+
+    @Test
+    void test_entriesAreEvictedBeyondMaximumWeight_ok() {
+        var store = CaffeineStore.builder().maximumWeightPerNamespace(10_000).build();
+
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:" + i, new Context(String.valueOf(i)).withProperties(Map.of("key", "value")));
+        }
+
+        await().untilAsserted(() -> assertThat(store.getStatistics().getEstimatedBytes()).isLessThanOrEqualTo(10_000));
+        assertThat(store.getKeys("context").count()).isPositive().isLessThan(1000);
+    }
+
+    @Test
+    void test_maximumWeightAppliesPerNamespace_ok() {
+        var store = CaffeineStore.builder().maximumWeightPerNamespace(10_000).build();
+
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:" + i, new Context(String.valueOf(i)));
+            store.put("other:" + i, new Context(String.valueOf(i)));
+        }
+
+        await().untilAsserted(() -> {
+            assertThat(weigh(store, "context")).isPositive().isLessThanOrEqualTo(10_000);
+            assertThat(weigh(store, "other")).isPositive().isLessThanOrEqualTo(10_000);
+        });
+        assertThat(store.getStatistics().getEstimatedBytes()).isGreaterThan(10_000);
+    }
+
+    private static long weigh(CaffeineStore store, String namespace) {
+        return store.getKeys(namespace).mapToLong(key -> store.get(key).map(it -> ContextWeigher.weigh(key, it)).orElse(0)).sum();
+    }
+
+    @Test
+    void test_promptExpirationNotifiesWithoutAccess_ok() {
+        var evictions = new ConcurrentLinkedQueue<String>();
+        var store = CaffeineStore.builder()
+            .expirationSeconds(1)
+            .promptExpiration(true)
+            .evictionListener((key, value, cause) -> evictions.add(key + "=" + cause))
+            .build();
+
+        store.put("context:one", new Context("one"));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(evictions).containsExactly("context:one=EXPIRED"));
+    }
+
+    @Test
+    void test_evictionBeyondMaximumWeightIsNotified_ok() {
+        var evictions = new ConcurrentLinkedQueue<StoreEvictionListener.Cause>();
+        var store = CaffeineStore.builder()
+            .maximumWeightPerNamespace(10_000)
+            .evictionListener((key, value, cause) -> evictions.add(cause))
+            .build();
+
+        for (int i = 0; i < 1000; i++) {
+            store.put("context:" + i, new Context(String.valueOf(i)));
+        }
+
+        await().untilAsserted(() -> assertThat(evictions).isNotEmpty().containsOnly(StoreEvictionListener.Cause.SIZE));
+    }
+
+    @Test
+    void test_explicitRemovalIsNotNotified_ok() {
+        var evictions = new ConcurrentLinkedQueue<String>();
+        var store = CaffeineStore.builder()
+            .promptExpiration(true)
+            .evictionListener((key, value, cause) -> evictions.add(key + "=" + cause))
+            .build();
+        store.put("context:one", new Context("one"));
+        store.put("context:two", new Context("two"));
+        store.put("context:three", new Context("three"));
+
+        store.remove("context:one");
+        store.put("context:two", new Context("two").withIncrementedUpdateCount());
+        store.clear();
+
+        await().during(Duration.ofMillis(500)).atMost(Duration.ofSeconds(2)).until(evictions::isEmpty);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedFileStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void test_contextsAreRestored_ok() {
+        try (var store = MappedFileStore.builder(directory).build()) {
+            var context = new Context("one").withProperties(new HashMap<>(Map.of("key", "value")));
+            store.put("context:one", context);
+            store.put("context:two", new Context("two"));
+            store.remove("context:two");
+        }
+
+        try (var reopened = MappedFileStore.builder(directory).build()) {
+            assertThat(reopened.getKeys("context")).containsExactly("context:one");
+            assertThat(reopened.get("context:one"))
+                .hasValueSatisfying(it -> assertThat(((Context) it).getProperties()).containsEntry("key", "value"));
+            assertThat(reopened.get("context:two")).isEmpty();
+        }
+    }
+
+    @Test
+    void test_spaceOfOldVersionsIsReclaimed_ok() {
+        try (var store = MappedFileStore.builder(directory).segmentSize(4096).maximumSize(4096 * 4).build()) {
+            for (int i = 0; i < 10_000; i++) {
+                store.put("context:one", new Context("one").withProperties(new HashMap<>(Map.of("i", String.valueOf(i)))));
+            }
+
+            assertThat(store.getAllocatedBytes()).isLessThanOrEqualTo(4096 * 4);
+            assertThat(directory.toFile().list((dir, name) -> name.endsWith(".log"))).hasSizeLessThanOrEqualTo(4);
+        }
+
+        try (var reopened = MappedFileStore.builder(directory).segmentSize(4096).maximumSize(4096 * 4).build()) {
+            assertThat(reopened.get("context:one"))
+                .hasValueSatisfying(it -> assertThat(((Context) it).getProperties()).containsEntry("i", "9999"));
+        }
+    }
+
+    @Test
+    void test_directoryInUse_fail() {
+        try (var store = MappedFileStore.builder(directory).build()) {
+            store.put("context:one", new Context("one"));
+
+            assertThatThrownBy(() -> MappedFileStore.builder(directory).build())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("directory is used by another store");
+            assertThat(store.get("context:one")).isPresent();
+        }
+
+        try (var reopened = MappedFileStore.builder(directory).build()) {
+            assertThat(reopened.getKeys("context")).containsExactly("context:one");
+        }
+    }
+
+    @Test
+    void test_invalidatedSegmentIsRestoredAsEmpty_ok() throws Exception {
+        try (var store = MappedFileStore.builder(directory).segmentSize(4096).build()) {
+            store.put("context:one", new Context("one"));
+        }
+        // what a released segment looks like if the platform refuses to delete it
+        try (var channel = FileChannel.open(directory.resolve("segment-00000000.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+        }
+
+        try (var reopened = MappedFileStore.builder(directory).segmentSize(4096).build()) {
+            assertThat(reopened.getAllKeys()).isEmpty();
+            reopened.put("context:two", new Context("two"));
+            assertThat(reopened.getKeys("context")).containsExactly("context:two");
+        }
+    }
+}
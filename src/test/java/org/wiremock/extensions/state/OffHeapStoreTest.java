@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapStoreTest {
+
+    // without hot set, reads decode the contexts from off-heap memory
+    private final OffHeapStore store = OffHeapStore.builder().segmentSize(4096).maximumSize(4 * 4096).hotSetSize(0).build();
+
+    private static Context createContext(String name, String value) {
+        return new Context(name).withProperties(new HashMap<>(Map.of("key", value)));
+    }
+
+    private static String getValue(Object context) {
+        return ((Context) context).getProperties().get("key");
+    }
+
+    @Test
+    void test_putAndGet_ok() {
+        store.put("context:one", createContext("one", "first"));
+        store.put("context:one", createContext("one", "second"));
+
+        assertThat(store.get("context:one")).hasValueSatisfying(it -> assertThat(getValue(it)).isEqualTo("second"));
+        assertThat(store.get("context:unknown")).isEmpty();
+    }
+
+    @Test
+    void test_otherValuesAreKeptOnHeap_ok() {
+        var value = new Object();
+        store.put("other:one", value);
+        store.put("context:one", createContext("one", "first"));
+        store.put("context:one", value);
+
+        assertThat(store.get("other:one")).containsSame(value);
+        assertThat(store.get("context:one")).containsSame(value);
+    }
+
+    @Test
+    void test_remove_ok() {
+        store.put("context:one", createContext("one", "first"));
+        store.put("context:two", createContext("two", "first"));
+
+        store.remove("context:one");
+        store.remove("context:unknown");
+
+        assertThat(store.get("context:one")).isEmpty();
+        assertThat(store.getKeys("context")).containsExactly("context:two");
+    }
+
+    @Test
+    void test_clear_ok() {
+        store.put("context:one", createContext("one", "first"));
+        store.put("other:one", "value");
+
+        store.clear();
+
+        assertThat(store.getAllKeys()).isEmpty();
+        assertThat(store.getAllocatedBytes()).isZero();
+        store.put("context:one", createContext("one", "again"));
+        assertThat(store.get("context:one")).hasValueSatisfying(it -> assertThat(getValue(it)).isEqualTo("again"));
+    }
+
+    @Test
+    void test_getKeys_ok() {
+        store.put("context:one", createContext("one", "first"));
+        store.put("context:two", createContext("two", "first"));
+        store.put("other:one", "value");
+
+        assertThat(store.getKeys("context")).containsExactlyInAnyOrder("context:one", "context:two");
+        assertThat(store.getKeys("unknown")).isEmpty();
+        assertThat(store.getAllKeys()).containsExactlyInAnyOrder("context:one", "context:two", "other:one");
+    }
+
+    @Test
+    void test_overwritesAreReclaimed_ok() {
+        store.put("context:kept", createContext("kept", "kept"));
+        IntStream.range(0, 10_000).forEach(i -> store.put("context:changed", createContext("changed", String.valueOf(i))));
+
+        assertThat(store.getAllocatedBytes()).isLessThanOrEqualTo(4 * 4096);
+        assertThat(store.getLiveBytes()).isLessThan(4096);
+        assertThat(store.get("context:kept")).hasValueSatisfying(it -> assertThat(getValue(it)).isEqualTo("kept"));
+        assertThat(store.get("context:changed")).hasValueSatisfying(it -> assertThat(getValue(it)).isEqualTo("9999"));
+    }
+}
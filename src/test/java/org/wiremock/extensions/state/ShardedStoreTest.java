@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedStoreTest {
+
+    private final ShardedStore store = new ShardedStore(4, CaffeineStore::new);
+    private final ContextManager contextManager = new ContextManager(store, new TransactionManager());
+
+    @Test
+    void test_contextsAreDistributedOverShards_ok() {
+        IntStream.range(0, 100).forEach(i -> store.put("context:" + i, new Context(String.valueOf(i))));
+
+        assertThat(store.getShards()).hasSize(4).allSatisfy(shard -> assertThat(shard.getAllKeys()).isNotEmpty());
+        assertThat(store.getKeys("context")).hasSize(100);
+        assertThat(store.get("context:42")).hasValueSatisfying(it -> assertThat(((Context) it).getContextName()).isEqualTo("42"));
+    }
+
+    @Test
+    void test_contextIsAlwaysAssignedToSameShard_ok() {
+        store.put("context:one", new Context("one"));
+        store.put("context:one", new Context("one").withIncrementedUpdateCount());
+        store.remove("context:two");
+
+        assertThat(store.getAllKeys()).containsExactly("context:one");
+        assertThat(store.get("context:one")).hasValueSatisfying(it -> assertThat(((Context) it).getUpdateCount()).isEqualTo(1));
+    }
+
+    @Test
+    void test_onEachVisitsContextsOfAllShards_ok() {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, 100).forEach(i -> contextManager.createOrUpdateContextState(requestId, String.valueOf(i), Map.of("key", "value")));
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+
+        contextManager.onEach(requestId, context -> visited.add(context.getContextName()));
+
+        assertThat(visited).isEqualTo(IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void test_deleteAllContextsClearsAllShards_ok() {
+        var requestId = UUID.randomUUID().toString();
+        IntStream.range(0, 100).forEach(i -> contextManager.createOrUpdateContextState(requestId, String.valueOf(i), Map.of("key", "value")));
+
+        contextManager.deleteAllContexts(requestId);
+
+        assertThat(store.getKeys("context")).isEmpty();
+    }
+}
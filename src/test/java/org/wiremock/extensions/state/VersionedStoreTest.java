@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionedStoreTest {
+
+    private static final int WRITERS = 4;
+    private static final int WRITES_PER_WRITER = 100;
+
+    private static void assertStaleVersionIsRejected(VersionedStore store) {
+        assertThat(store.compareAndSet("context:one", VersionedStore.NO_VERSION, new Context("one"))).isTrue();
+        var version = store.getVersioned("context:one").orElseThrow().getVersion();
+
+        store.remove("context:one");
+        assertThat(store.compareAndSet("context:one", VersionedStore.NO_VERSION, new Context("one"))).isTrue();
+
+        assertThat(store.compareAndSet("context:one", version, new Context("one").withIncrementedUpdateCount())).isFalse();
+        assertThat(store.getVersioned("context:one").orElseThrow().getVersion()).isNotEqualTo(version);
+    }
+
+    /**
+     * Runs concurrent writers, each with a context manager of its own as if they were on different instances.
+     */
+    private static void assertNoUpdateIsLost(VersionedStore... stores) throws Exception {
+        var executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            var writers = new ArrayList<Callable<Void>>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                var contextManager = new ContextManager(stores[writer % stores.length], new TransactionManager());
+                var writerId = writer;
+                writers.add(() -> {
+                    for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                        var requestId = writerId + "-" + i;
+                        contextManager.createOrUpdateContextList(requestId, "shared", list -> list.append(Map.of("id", requestId)));
+                        contextManager.createOrUpdateContextState(requestId, "shared", Map.of("last", requestId));
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : executor.invokeAll(writers)) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(stores[0].get("context:shared"))
+            .hasValueSatisfying(it -> {
+                var context = (Context) it;
+                assertThat(context.getList()).hasSize(WRITERS * WRITES_PER_WRITER);
+                assertThat(context.getUpdateCount()).isEqualTo(WRITERS * WRITES_PER_WRITER);
+            });
+    }
+
+    @Nested
+    class InMemory {
+
+        @Test
+        void test_staleVersionIsRejected_ok() {
+            assertStaleVersionIsRejected(new InMemoryVersionedStore());
+        }
+
+        @Test
+        void test_concurrentUpdatesAreNotLost_ok() throws Exception {
+            assertNoUpdateIsLost(new InMemoryVersionedStore());
+        }
+    }
+
+    @Nested
+    class SharedDirectory {
+
+        @TempDir
+        Path directory;
+
+        @Test
+        void test_staleVersionIsRejected_ok() {
+            assertStaleVersionIsRejected(new SharedDirectoryStore(directory));
+        }
+
+        @Test
+        void test_concurrentUpdatesOfStoresSharingDirectoryAreNotLost_ok() throws Exception {
+            assertNoUpdateIsLost(new SharedDirectoryStore(directory), new SharedDirectoryStore(directory));
+        }
+
+        @Test
+        void test_removedContextIsRemovedForAllStores_ok() {
+            var first = new SharedDirectoryStore(directory);
+            var second = new SharedDirectoryStore(directory);
+            first.put("context:one", new Context("one"));
+
+            second.remove("context:one");
+
+            assertThat(first.get("context:one")).isEmpty();
+            assertThat(first.getAllKeys()).isEmpty();
+        }
+
+        @Test
+        void test_keysAreListedWithoutReadingContexts_ok() throws Exception {
+            var store = new SharedDirectoryStore(directory);
+            store.put("context:one", new Context("one"));
+            store.put("context:two", new Context("two"));
+            store.remove("context:two");
+
+            try (var files = Files.list(directory)) {
+                for (var file : files.filter(it -> it.toString().endsWith(".ctx")).collect(Collectors.toList())) {
+                    var header = Long.BYTES + Integer.BYTES + "context:one".length() + 1;
+                    try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        channel.truncate(header);
+                    }
+                }
+            }
+
+            assertThat(store.getAllKeys()).containsExactly("context:one");
+        }
+    }
+}
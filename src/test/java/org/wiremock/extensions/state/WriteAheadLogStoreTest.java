@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.greaterThan;
+
+class WriteAheadLogStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static Context createContext(String name, String value) {
+        return new Context(name).withProperties(new HashMap<>(Map.of("key", value)));
+    }
+
+    @Test
+    void test_contextsAreRecovered_ok() {
+        var store = WriteAheadLogStore.builder(directory).build();
+        store.put("context:one", createContext("one", "first"));
+        store.put("context:one", createContext("one", "second"));
+        store.put("context:two", createContext("two", "first"));
+        store.remove("context:two");
+        store.close();
+
+        var recovered = WriteAheadLogStore.builder(directory).build();
+
+        assertThat(recovered.getKeys("context")).containsExactly("context:one");
+        assertThat(recovered.get("context:one"))
+            .hasValueSatisfying(it -> assertThat(((Context) it).getProperties()).containsEntry("key", "second"));
+        recovered.close();
+    }
+
+    @Test
+    void test_snapshotReplacesLogs_ok() {
+        var store = WriteAheadLogStore.builder(directory).snapshotInterval(Duration.ofMillis(10)).build();
+        for (int i = 0; i < 100; i++) {
+            store.put("context:one", createContext("one", String.valueOf(i)));
+        }
+        await().untilAsserted(() -> assertThat(directory.toFile().list()).anyMatch(it -> it.endsWith(".snap")));
+        store.close();
+
+        var recovered = WriteAheadLogStore.builder(directory).build();
+        assertThat(recovered.get("context:one"))
+            .hasValueSatisfying(it -> assertThat(((Context) it).getProperties()).containsEntry("key", "99"));
+        recovered.close();
+    }
+
+    @Test
+    void test_failedWriteIsFollowedBySnapshot_ok() {
+        var store = WriteAheadLogStore.builder(directory).build();
+        store.put("context:one", createContext("one", "first"));
+        var failingProperties = new FailingMap(Map.of("key", "first"));
+        store.put("context:two", new Context("two").withProperties(failingProperties));
+        store.put("context:one", createContext("one", "second"));
+        await().untilAtomic(failingProperties.failures, greaterThan(0));
+
+        failingProperties.failing = false;
+        store.close();
+
+        var recovered = WriteAheadLogStore.builder(directory).build();
+        assertThat(recovered.getKeys("context")).containsExactlyInAnyOrder("context:one", "context:two");
+        assertThat(recovered.get("context:one"))
+            .hasValueSatisfying(it -> assertThat(((Context) it).getProperties()).containsEntry("key", "second"));
+        recovered.close();
+    }
+
+    /**
+     * Properties whose serialization fails until `failing` is reset.
+     */
+    private static class FailingMap extends HashMap<String, String> {
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile boolean failing = true;
+
+        FailingMap(Map<String, String> entries) {
+            super(entries);
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            if (failing) {
+                failures.incrementAndGet();
+                throw new IllegalStateException("simulated write failure");
+            }
+            return super.entrySet();
+        }
+    }
+}
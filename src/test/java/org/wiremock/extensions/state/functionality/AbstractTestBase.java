@@ -43,7 +43,7 @@ import static org.junit.jupiter.api.parallel.ExecutionMode.SAME_THREAD;
 public class AbstractTestBase {
     protected static final ObjectMapper mapper = new ObjectMapper();
     protected static final CaffeineStore store = new CaffeineStore();
-    protected static final TransactionManager transactionManager = new TransactionManager(store);
+    protected static final TransactionManager transactionManager = new TransactionManager();
     protected static final ContextManager contextManager = new ContextManager(store, transactionManager);
 
     @RegisterExtension
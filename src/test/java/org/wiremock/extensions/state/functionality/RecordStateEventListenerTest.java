@@ -27,11 +27,13 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
@@ -177,6 +179,16 @@ class RecordStateEventListenerTest extends AbstractTestBase {
             assertContext(contextName, contextName, "one", "one", "noPrevious");
         }
 
+        @Test
+        public void test_transactionsAreNotKeptInStore_ok() {
+
+            var contextName = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("state", contextName, "one");
+
+            assertThat(store.getAllKeys()).noneMatch(it -> it.startsWith("transaction:"));
+        }
+
         @Test
         public void test_stateUsesNullOrDefaultIfNoValueIsMissingSpecified_ok() {
 
@@ -319,6 +331,121 @@ class RecordStateEventListenerTest extends AbstractTestBase {
         }
     }
 
+    @Nested
+    public class Ttl {
+
+        @BeforeEach
+        void setup() {
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/ttl/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "ttl", "1",
+                                "state", Map.of("stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}")
+                            )
+                        )
+                    )
+            );
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/longTtl/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "ttl", "9999999999",
+                                "state", Map.of("stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}")
+                            )
+                        )
+                    )
+            );
+        }
+
+        @Test
+        public void test_ttlIsStored_ok() {
+            var contextName = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("ttl", contextName, null);
+
+            assertThat(contextManager.getContextCopy(contextName))
+                .isPresent()
+                .hasValueSatisfying(it -> assertThat(it.getTtl()).isEqualTo(Duration.ofSeconds(1)));
+        }
+
+        @Test
+        public void test_ttlBeyondNanosecondRange_ok() {
+            var contextName = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("longTtl", contextName, null);
+
+            assertThat(contextManager.getContextCopy(contextName))
+                .isPresent()
+                .hasValueSatisfying(it -> assertThat(it.getTtl()).isEqualTo(Duration.ofSeconds(9999999999L)));
+        }
+
+        @Test
+        public void test_contextExpiresAfterTtl_ok() {
+            var contextName = RandomStringUtils.randomAlphabetic(5);
+            var otherContextName = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("ttl", contextName, null);
+            postRequest("state", otherContextName, "one");
+
+            await()
+                .atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(contextManager.getContextCopy(contextName)).isEmpty());
+            assertThat(contextManager.getContextCopy(otherContextName)).isPresent();
+        }
+    }
+
+    @Nested
+    public class Response {
+
+        @BeforeEach
+        void setup() {
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/response/[^/]+"))
+                    .willReturn(
+                        WireMock.ok()
+                            .withHeader("content-type", "text/plain")
+                            .withHeader("Version", "42")
+                            .withBody("responseBody")
+                    )
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "state", Map.of(
+                                    "body", "{{response.body}}",
+                                    "version", "{{response.headers.Version}}"
+                                )
+                            )
+                        )
+                    )
+            );
+        }
+
+        @Test
+        public void test_responseBodyAndHeadersAreRendered_ok() {
+            var contextName = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("response", contextName, null);
+
+            assertThat(contextManager.getContextCopy(contextName))
+                .isPresent()
+                .hasValueSatisfying(it -> {
+                    assertThat(it.getProperties()).containsEntry("body", "responseBody");
+                    assertThat(it.getProperties()).containsEntry("version", "42");
+                });
+        }
+    }
+
     @Nested
     public class NumUpdates {
         @Test
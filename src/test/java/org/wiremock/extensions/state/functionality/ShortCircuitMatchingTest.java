@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.jknack.handlebars.Helper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.TemplateHelperProviderExtension;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the state matcher with and without short-circuit evaluation.
+ */
+class ShortCircuitMatchingTest {
+
+    private static final AtomicInteger defaultRenderings = new AtomicInteger();
+    private static final AtomicInteger shortCircuitRenderings = new AtomicInteger();
+
+    @RegisterExtension
+    public static WireMockExtension defaultServer = createServer(false, defaultRenderings);
+
+    @RegisterExtension
+    public static WireMockExtension shortCircuitServer = createServer(true, shortCircuitRenderings);
+
+    private final String context = UUID.randomUUID().toString();
+
+    private static WireMockExtension createServer(boolean shortCircuitMatching, AtomicInteger renderings) {
+        return WireMockExtension.newInstance()
+            .options(
+                wireMockConfig().dynamicPort().dynamicHttpsPort().templatingEnabled(true).globalTemplating(true)
+                    .extensions(new StateExtension(new CaffeineStore(), shortCircuitMatching), new CountingHelperProvider(renderings))
+            )
+            .build();
+    }
+
+    @BeforeEach
+    void setup() {
+        for (var server : List.of(defaultServer, shortCircuitServer)) {
+            server.resetAll();
+            server.stubFor(
+                post(urlPathMatching("/state/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(Map.of(
+                            "context", "{{request.pathSegments.[1]}}",
+                            "state", Map.of("stateValue", "value"),
+                            "list", Map.of("addLast", Map.of("stateValue", "value"))
+                        ))
+                    )
+            );
+            given().post(server.getRuntimeInfo().getHttpBaseUrl() + "/state/" + context).then().statusCode(HttpStatus.SC_OK);
+        }
+        defaultRenderings.set(0);
+        shortCircuitRenderings.set(0);
+    }
+
+    private void createCheckStub(Map<String, Object> matchers) {
+        var configuration = new HashMap<>(matchers);
+        configuration.put("hasContext", "{{request.pathSegments.[1]}}");
+        for (var server : List.of(defaultServer, shortCircuitServer)) {
+            server.stubFor(
+                get(urlPathMatching("/check/[^/]+"))
+                    .andMatching("state-matcher", Parameters.from(configuration))
+                    .willReturn(WireMock.ok())
+            );
+        }
+    }
+
+    private void assertStatus(int httpStatus) {
+        for (var server : List.of(defaultServer, shortCircuitServer)) {
+            given().get(server.getRuntimeInfo().getHttpBaseUrl() + "/check/" + context).then().statusCode(httpStatus);
+        }
+    }
+
+    @DisplayName("does not evaluate expensive matchers once a cheap matcher failed")
+    @Test
+    void test_cheapMatcherFails_expensiveMatcherNotEvaluated() {
+        createCheckStub(Map.of(
+            "hasProperty", "unknownValue",
+            "property", Map.of("stateValue", Map.of("equalTo", "{{counted 'value'}}"))
+        ));
+
+        assertStatus(HttpStatus.SC_NOT_FOUND);
+
+        assertThat(defaultRenderings.get()).isPositive();
+        assertThat(shortCircuitRenderings.get()).isZero();
+    }
+
+    @DisplayName("evaluates all matchers if they match")
+    @Test
+    void test_allMatch_ok() {
+        createCheckStub(Map.of(
+            "hasProperty", "stateValue",
+            "listSizeEqualTo", "1",
+            "property", Map.of("stateValue", Map.of("equalTo", "{{counted 'value'}}"))
+        ));
+
+        assertStatus(HttpStatus.SC_OK);
+
+        assertThat(defaultRenderings.get()).isPositive();
+        assertThat(shortCircuitRenderings.get()).isEqualTo(defaultRenderings.get());
+    }
+
+    @DisplayName("fails like the default mode if the most expensive matcher fails")
+    @Test
+    void test_expensiveMatcherFails_fail() {
+        createCheckStub(Map.of(
+            "hasProperty", "stateValue",
+            "property", Map.of("stateValue", Map.of("equalTo", "{{counted 'other'}}"))
+        ));
+
+        assertStatus(HttpStatus.SC_NOT_FOUND);
+
+        assertThat(shortCircuitRenderings.get()).isPositive();
+    }
+
+    @DisplayName("fails like the default mode if a list matcher fails")
+    @Test
+    void test_listSizeFails_fail() {
+        createCheckStub(Map.of(
+            "hasProperty", "stateValue",
+            "listSizeMoreThan", "1",
+            "list", Map.of("0", Map.of("stateValue", Map.of("equalTo", "{{counted 'value'}}")))
+        ));
+
+        assertStatus(HttpStatus.SC_NOT_FOUND);
+
+        assertThat(defaultRenderings.get()).isPositive();
+        assertThat(shortCircuitRenderings.get()).isZero();
+    }
+
+    /**
+     * Provides the helper `counted`, which counts its renderings and returns its argument.
+     */
+    private static class CountingHelperProvider implements TemplateHelperProviderExtension {
+        private final AtomicInteger renderings;
+
+        CountingHelperProvider(AtomicInteger renderings) {
+            this.renderings = renderings;
+        }
+
+        @Override
+        public Map<String, Helper<?>> provideTemplateHelpers() {
+            Helper<Object> helper = (value, options) -> {
+                renderings.incrementAndGet();
+                return value;
+            };
+            return Map.of("counted", helper);
+        }
+
+        @Override
+        public String getName() {
+            return "countingHelper";
+        }
+    }
+}
@@ -171,6 +171,34 @@ class StateRequestMatcherTest extends AbstractTestBase {
         return context;
     }
 
+    @DisplayName("with invalid configuration")
+    @Nested
+    public class ConfigurationErrors {
+
+        @BeforeEach
+        public void setup() {
+            wm.resetAll();
+        }
+
+        @DisplayName("fails on blank 'hasContext'")
+        @Test
+        void test_blankHasContext_fail() {
+            createGetStub(Map.of("hasContext", " "));
+
+            getAndAssertContextMatcher("context", HttpStatus.SC_INTERNAL_SERVER_ERROR)
+                .body(Matchers.containsString("No context specified"));
+        }
+
+        @DisplayName("fails on blank 'hasNotContext'")
+        @Test
+        void test_blankHasNotContext_fail() {
+            createGetStub(Map.of("hasNotContext", ""));
+
+            getAndAssertContextMatcher("context", HttpStatus.SC_INTERNAL_SERVER_ERROR)
+                .body(Matchers.containsString("No context specified"));
+        }
+    }
+
     @DisplayName("with matcher 'hasNotContext'")
     @Nested
     public class HasNotContext {
@@ -402,6 +430,56 @@ class StateRequestMatcherTest extends AbstractTestBase {
             }
         }
 
+        @DisplayName("with multiple matchers")
+        @Nested
+        public class MultipleMatchers {
+            private final String contextValue = "abcdefghijklmn";
+            private String context;
+
+            @BeforeEach
+            void setup() {
+                createPostStub();
+                context = postAndAssertContextValue(contextValue);
+            }
+
+            @DisplayName("succeeds when all matchers match")
+            @Test
+            void test_allMatch_ok() {
+                createGetStub(Map.of(
+                    "hasContext", "{{request.pathSegments.[2]}}",
+                    "property", Map.of("stateValue", Map.of("contains", "defg")),
+                    "hasProperty", "stateValue",
+                    "listSizeEqualTo", "1"
+                ));
+
+                getAndAssertContextMatcher(context, HttpStatus.SC_OK);
+            }
+
+            @DisplayName("fails when a cheap matcher does not match")
+            @Test
+            void test_cheapMatcherFails_fail() {
+                createGetStub(Map.of(
+                    "hasContext", "{{request.pathSegments.[2]}}",
+                    "property", Map.of("stateValue", Map.of("contains", "defg")),
+                    "hasProperty", "unknownValue"
+                ));
+
+                getAndAssertContextMatcher(context, HttpStatus.SC_NOT_FOUND);
+            }
+
+            @DisplayName("fails when an expensive matcher does not match")
+            @Test
+            void test_expensiveMatcherFails_fail() {
+                createGetStub(Map.of(
+                    "hasContext", "{{request.pathSegments.[2]}}",
+                    "property", Map.of("stateValue", Map.of("contains", "11111")),
+                    "hasProperty", "stateValue"
+                ));
+
+                getAndAssertContextMatcher(context, HttpStatus.SC_NOT_FOUND);
+            }
+        }
+
         @DisplayName("with matcher 'list'")
         @Nested
         public class ListMatcher {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateExtension;
+
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.greaterThan;
+
+class StateStatisticsTest {
+
+    private static final CaffeineStore store = CaffeineStore.builder().recordStats(true).build();
+    private static final StateExtension stateExtension = new StateExtension(store);
+
+    @RegisterExtension
+    public static WireMockExtension wm = WireMockExtension.newInstance()
+        .options(
+            wireMockConfig().dynamicPort().dynamicHttpsPort().templatingEnabled(true).globalTemplating(true)
+                .extensions(stateExtension)
+        )
+        .build();
+
+    private void recordState(String context) {
+        recordState(context, "{{request.pathSegments.[1]}}");
+    }
+
+    private void recordState(String context, String contextTemplate) {
+        wm.stubFor(
+            WireMock.post(urlPathMatching("/state/[^/]+"))
+                .willReturn(WireMock.ok())
+                .withServeEventListener(
+                    "recordState",
+                    Parameters.from(
+                        Map.of(
+                            "context", contextTemplate,
+                            "state", Map.of("key", "value")
+                        )
+                    )
+                )
+        );
+        given()
+            .post(wm.getRuntimeInfo().getHttpBaseUrl() + "/state/" + context)
+            .then()
+            .statusCode(HttpStatus.SC_OK);
+    }
+
+    @Test
+    void test_statisticsAreAvailableProgrammatically_ok() {
+        recordState("programmatic");
+        store.get("context:programmatic");
+        store.get("context:unknown");
+
+        var statistics = stateExtension.getStatistics().getStore();
+
+        assertThat(statistics.getContextCount()).isGreaterThanOrEqualTo(1);
+        assertThat(statistics.getEstimatedBytes()).isPositive();
+        assertThat(statistics.getHitCount()).isPositive();
+        assertThat(statistics.getMissCount()).isPositive();
+    }
+
+    @Test
+    void test_statisticsAreAvailableByAdminApi_ok() {
+        recordState("admin");
+
+        given()
+            .get(wm.getRuntimeInfo().getHttpBaseUrl() + "/__admin/state/statistics")
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .body("store.contextCount", greaterThan(0))
+            .body("store.estimatedBytes", greaterThan(0))
+            .body("transactionCount", notNullValue())
+            .body("templateHitCount", notNullValue())
+            .body("templateMissCount", notNullValue());
+    }
+
+    @Test
+    void test_templateCacheStatisticsAreAvailable_ok() {
+        var before = stateExtension.getStatistics();
+
+        recordState("templates", "{{request.pathSegments.[1]}}-cached");
+        recordState("templates", "{{request.pathSegments.[1]}}-cached");
+
+        var after = stateExtension.getStatistics();
+        assertThat(after.getTemplateMissCount() - before.getTemplateMissCount()).isEqualTo(1);
+        assertThat(after.getTemplateHitCount() - before.getTemplateHitCount()).isEqualTo(1);
+    }
+}
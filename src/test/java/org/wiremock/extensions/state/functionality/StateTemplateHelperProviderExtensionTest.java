@@ -757,6 +757,18 @@ class StateTemplateHelperProviderExtensionTest extends AbstractTestBase {
             getContext(contextName, (result) -> assertThat(result).containsAllEntriesOf(request));
         }
 
+        @DisplayName("with bracket notation returns index element")
+        @Test
+        void test_bracketNotationReturnsIndexElement() {
+            Map<String, Object> request = Map.of("listValue", "aListValue2");
+            createContextListPostStub(Map.of("listValue", "{{jsonPath request.body '$.listValue'}}"));
+            createContextGetStub(Map.of("listValue", "{{state context=request.pathSegments.[1] list=\"$[1]['listValue']\"}}"));
+
+            postContext(contextName, Map.of("listValue", "aListValue1"));
+            postContext(contextName, request);
+            getContext(contextName, (result) -> assertThat(result).containsAllEntriesOf(request));
+        }
+
         @DisplayName("when accessing full list")
         @Nested
         public class FullList {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.ChunkedList;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextWeigherTest {
+
+    private static Context createContext(int listSize, Map<String, String> entry) {
+        var list = IntStream.range(0, listSize).mapToObj(i -> entry).collect(Collectors.toList());
+        return new Context("context").withList(ChunkedList.copyOf(list));
+    }
+
+    private static long weighList(int listSize, Map<String, String> entry) {
+        return ContextWeigher.weigh("context:context", createContext(listSize, entry)) - ContextWeigher.weigh("context:context", new Context("context"));
+    }
+
+    @Test
+    void test_weightGrowsWithContent_ok() {
+        var empty = ContextWeigher.weigh("context:one", new Context("one"));
+        var withProperty = ContextWeigher.weigh("context:one", new Context("one").withProperties(Map.of("key", "value")));
+        var withLongerProperty = ContextWeigher.weigh("context:one", new Context("one").withProperties(Map.of("key", "value".repeat(100))));
+
+        assertThat(empty).isPositive();
+        assertThat(withProperty).isGreaterThan(empty);
+        assertThat(withLongerProperty).isEqualTo(withProperty + "value".length() * 99);
+    }
+
+    @Test
+    void test_otherValues_ok() {
+        assertThat(ContextWeigher.weigh("transaction:one", "value")).isPositive();
+        assertThat(ContextWeigher.weigh("transaction:one", new Object())).isPositive();
+        assertThat(ContextWeigher.weigh("transaction:one", null)).isPositive();
+    }
+
+    @Test
+    void test_sampledListWeight_ok() {
+        var entry = Map.of("key", "value");
+        var entryWeight = weighList(1, entry);
+
+        // up to the sample size, every entry is weighed
+        assertThat(weighList(16, entry)).isEqualTo(16 * entryWeight);
+        // beyond, a sample is extrapolated, which is exact for entries of equal size
+        assertThat(weighList(17, entry)).isEqualTo(17 * entryWeight);
+        assertThat(weighList(1000, entry)).isEqualTo(1000 * entryWeight);
+    }
+
+    @Test
+    void test_sampledListWeightOfMixedEntries_ok() {
+        var small = Map.of("key", "v");
+        var large = Map.of("key", "v".repeat(1000));
+        var list = IntStream.range(0, 1000).mapToObj(i -> i < 500 ? small : large).collect(Collectors.toList());
+        var exact = 500 * (weighList(1, small) + weighList(1, large));
+
+        var estimated = ContextWeigher.weigh("context:context", new Context("context").withList(ChunkedList.copyOf(list)))
+            - ContextWeigher.weigh("context:context", new Context("context"));
+
+        assertThat(estimated).isBetween(exact / 2, exact * 2);
+    }
+}
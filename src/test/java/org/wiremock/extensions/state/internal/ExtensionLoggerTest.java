@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.tomakehurst.wiremock.common.LocalNotifier;
+import com.github.tomakehurst.wiremock.common.Notifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExtensionLoggerTest {
+
+    private final List<String> infos = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        LocalNotifier.set(new Notifier() {
+            @Override
+            public void info(String message) {
+                infos.add(message);
+            }
+
+            @Override
+            public void error(String message) {
+                errors.add(message);
+            }
+
+            @Override
+            public void error(String message, Throwable t) {
+                errors.add(message);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        LocalNotifier.set(null);
+        System.clearProperty(ExtensionLogger.VERBOSE_PROPERTY);
+    }
+
+    @Test
+    void test_infoIsLoggedIfEnabled_ok() {
+        var logger = new ExtensionLogger(true);
+
+        logger.info("one", "message");
+        logger.info(new Context("two"), () -> "supplied");
+
+        assertThat(infos).containsExactly("Context 'one': message", "Context 'two': supplied");
+    }
+
+    @Test
+    void test_suppliersAreNotEvaluatedIfDisabled_ok() {
+        var logger = new ExtensionLogger(false);
+        var evaluations = new AtomicInteger();
+
+        logger.info("one", () -> "message " + evaluations.incrementAndGet());
+        logger.info(new Context("two"), () -> "message " + evaluations.incrementAndGet());
+        logger.info("three", "message");
+
+        assertThat(evaluations).hasValue(0);
+        assertThat(infos).isEmpty();
+    }
+
+    @Test
+    void test_errorsAreLoggedIfInfoIsDisabled_ok() {
+        var logger = new ExtensionLogger(false);
+
+        logger.error("one", "failed");
+
+        assertThat(errors).containsExactly("Context 'one': failed");
+    }
+
+    @Test
+    void test_verbosityIsPerInstance_ok() {
+        var verbose = new ContextManager(new CaffeineStore(), new TransactionManager(), new ExtensionLogger(true));
+        var quiet = new ContextManager(new CaffeineStore(), new TransactionManager(), new ExtensionLogger(false));
+
+        verbose.getLogger().info("verbose", "message");
+        quiet.getLogger().info("quiet", "message");
+
+        assertThat(verbose.getLogger().isInfoEnabled()).isTrue();
+        assertThat(quiet.getLogger().isInfoEnabled()).isFalse();
+        assertThat(infos).containsExactly("Context 'verbose': message");
+    }
+
+    @Test
+    void test_verbosePropertyIsDefault_ok() {
+        assertThat(ExtensionLogger.isVerboseByDefault()).isTrue();
+        assertThat(new ContextManager(new CaffeineStore(), new TransactionManager()).getLogger().isInfoEnabled()).isTrue();
+
+        System.setProperty(ExtensionLogger.VERBOSE_PROPERTY, "false");
+
+        assertThat(ExtensionLogger.isVerboseByDefault()).isFalse();
+        assertThat(new ContextManager(new CaffeineStore(), new TransactionManager()).getLogger().isInfoEnabled()).isFalse();
+    }
+}
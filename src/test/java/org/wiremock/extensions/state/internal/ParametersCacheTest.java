@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParametersCacheTest {
+
+    private final AtomicInteger compilations = new AtomicInteger();
+    private final ParametersCache<Plan> cache = new ParametersCache<>(parameters -> {
+        compilations.incrementAndGet();
+        return new Plan(parameters.getString("context"));
+    });
+
+    @Test
+    void test_sameParametersReuseTheirPlan_ok() {
+        var parameters = Parameters.from(Map.of("context", "one"));
+
+        var first = cache.get(parameters);
+        var second = cache.get(parameters);
+
+        assertThat(second).isSameAs(first);
+        assertThat(compilations).hasValue(1);
+    }
+
+    @Test
+    void test_equalParametersGetAFreshPlan_ok() {
+        var first = cache.get(Parameters.from(Map.of("context", "one")));
+        var second = cache.get(Parameters.from(Map.of("context", "one")));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.context).isEqualTo("one");
+        assertThat(compilations).hasValue(2);
+    }
+
+    @Test
+    void test_changedParametersGetTheirOwnPlan_ok() {
+        var first = cache.get(Parameters.from(Map.of("context", "one")));
+        var second = cache.get(Parameters.from(Map.of("context", "two")));
+
+        assertThat(first.context).isEqualTo("one");
+        assertThat(second.context).isEqualTo("two");
+    }
+
+    @Test
+    void test_failedCompilationIsNotCached_fail() {
+        var attempts = new AtomicInteger();
+        var failingCache = new ParametersCache<Plan>(parameters -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("invalid");
+        });
+        var parameters = Parameters.from(Map.of("context", "one"));
+
+        assertThatThrownBy(() -> failingCache.get(parameters)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> failingCache.get(parameters)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(attempts).hasValue(2);
+    }
+
+    private static class Plan {
+        private final String context;
+
+        Plan(String context) {
+            this.context = context;
+        }
+    }
+}
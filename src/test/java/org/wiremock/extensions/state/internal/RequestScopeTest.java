@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestScopeTest {
+
+    private final CaffeineStore store = new CaffeineStore();
+    private final ContextManager contextManager = new ContextManager(store, new TransactionManager());
+
+    private void writeBehindContextManager(String contextName, String value) {
+        store.put(contextManager.createContextKey(contextName), new Context(contextName).withProperties(new HashMap<>(Map.of("key", value))));
+    }
+
+    @Test
+    void test_snapshotIsReusedWithinRequest_ok() {
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("request");
+
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "first"));
+        writeBehindContextManager("one", "second");
+
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "first"));
+        contextManager.closeRequestScope("request");
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "second"));
+    }
+
+    @Test
+    void test_writesOfRequestInvalidateSnapshot_ok() {
+        contextManager.openRequestScope("request");
+        assertThat(contextManager.getContextCopy("one")).isEmpty();
+
+        contextManager.createOrUpdateContextState("request", "one", Map.of("key", "first"));
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "first"));
+
+        contextManager.deleteContext("request", "one");
+        assertThat(contextManager.getContextCopy("one")).isEmpty();
+        contextManager.closeRequestScope("request");
+    }
+
+    @Test
+    void test_readMissingContext_ok() {
+        assertThat(contextManager.readContext("missing", Context::getUpdateCount)).isEmpty();
+
+        contextManager.openRequestScope("request");
+        assertThat(contextManager.readContext("missing", Context::getUpdateCount)).isEmpty();
+        contextManager.closeRequestScope("request");
+    }
+
+    @Test
+    void test_readMissingValue_ok() {
+        writeBehindContextManager("one", "first");
+
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("missing"))).isEmpty();
+    }
+
+    @Test
+    void test_readOutsideRequestScopeSeesLatestVersion_ok() {
+        writeBehindContextManager("one", "first");
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("first");
+
+        writeBehindContextManager("one", "second");
+
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("second");
+    }
+
+    @Test
+    void test_readInsideRequestScopeUsesSnapshot_ok() {
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("request");
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("first");
+
+        writeBehindContextManager("one", "second");
+
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("first");
+        contextManager.closeRequestScope("request");
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("second");
+    }
+
+    @Test
+    void test_readContextWrittenInSameRequest_ok() {
+        contextManager.openRequestScope("request");
+        assertThat(contextManager.readContext("one", Context::getUpdateCount)).isEmpty();
+
+        contextManager.createOrUpdateContextState("request", "one", Map.of("key", "first"));
+        contextManager.createOrUpdateContextList("request", "one", list -> list.append(Map.of("entry", "value")));
+
+        assertThat(contextManager.readContext("one", it -> it.getProperties().get("key"))).hasValue("first");
+        assertThat(contextManager.readContext("one", it -> it.getList().size())).hasValue(1);
+        contextManager.closeRequestScope("request");
+    }
+
+    @Test
+    void test_scopeOfOtherRequestIsNotClosed_ok() {
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("request");
+        contextManager.getContextCopy("one");
+        writeBehindContextManager("one", "second");
+
+        contextManager.closeRequestScope("otherRequest");
+
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "first"));
+        contextManager.closeRequestScope("request");
+    }
+
+    @Test
+    void test_scopeClosedFromOtherThread_ok() throws Exception {
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("request");
+        contextManager.getContextCopy("one");
+        writeBehindContextManager("one", "second");
+
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> contextManager.closeRequestScope("request")).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "second"));
+    }
+
+    @Test
+    void test_leftoverScopeIsDiscardedByNextRequest_ok() {
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("failedRequest");
+        contextManager.getContextCopy("one");
+        writeBehindContextManager("one", "second");
+
+        contextManager.openRequestScope("request");
+
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "second"));
+        contextManager.closeRequestScope("failedRequest");
+        writeBehindContextManager("one", "third");
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "second"));
+        contextManager.closeRequestScope("request");
+    }
+
+    @Test
+    void test_valuesAreComputedOncePerRequest_ok() {
+        var computations = new AtomicInteger();
+        contextManager.openRequestScope("request");
+
+        assertThat(contextManager.computeInRequestScope("outer", () -> contextManager.computeInRequestScope("inner", computations::incrementAndGet) + 1)).isEqualTo(2);
+        assertThat(contextManager.computeInRequestScope("inner", computations::incrementAndGet)).isEqualTo(1);
+        assertThat(contextManager.computeInRequestScope("outer", computations::incrementAndGet)).isEqualTo(2);
+        contextManager.closeRequestScope("request");
+
+        assertThat(contextManager.computeInRequestScope("inner", computations::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void test_leftoverScopeIsNotUsedForOtherRequest_ok() {
+        var failedRequest = new Object();
+        var otherRequest = new Object();
+        writeBehindContextManager("one", "first");
+        contextManager.openRequestScope("failedRequest");
+        contextManager.joinRequestScope(failedRequest);
+        assertThat(contextManager.computeInRequestScope("model", () -> "failedRequest")).isEqualTo("failedRequest");
+        contextManager.getContextCopy("one");
+        writeBehindContextManager("one", "second");
+
+        contextManager.joinRequestScope(failedRequest);
+        assertThat(contextManager.computeInRequestScope("model", () -> "otherModel")).isEqualTo("failedRequest");
+
+        contextManager.joinRequestScope(otherRequest);
+        assertThat(contextManager.computeInRequestScope("model", () -> "otherRequest")).isEqualTo("otherRequest");
+        assertThat(contextManager.getContextCopy("one")).hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("key", "second"));
+        contextManager.closeRequestScope("failedRequest");
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkedListTest {
+
+    private static final int[] SIZES = {0, 1, 31, 32, 33, 64, 65, 300};
+
+    /**
+     * Ways to build a list, resulting in different chunk layouts: full or partial first chunks.
+     */
+    private static final Map<String, Function<List<Integer>, ChunkedList<Integer>>> BUILDERS = Map.of(
+        "copyOf", ChunkedList::copyOf,
+        "append", ChunkedListTest::buildByAppending,
+        "prepend", ChunkedListTest::buildByPrepending,
+        "copyOfAndPrepend", ChunkedListTest::buildByCopyingAndPrepending
+    );
+
+    private static ChunkedList<Integer> buildByAppending(List<Integer> elements) {
+        var list = ChunkedList.<Integer>empty();
+        for (var element : elements) {
+            list = list.append(element);
+        }
+        return list;
+    }
+
+    private static ChunkedList<Integer> buildByPrepending(List<Integer> elements) {
+        var list = ChunkedList.<Integer>empty();
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            list = list.prepend(elements.get(i));
+        }
+        return list;
+    }
+
+    private static ChunkedList<Integer> buildByCopyingAndPrepending(List<Integer> elements) {
+        var prepended = Math.min(5, elements.size());
+        var list = ChunkedList.copyOf(elements.subList(prepended, elements.size()));
+        for (int i = prepended - 1; i >= 0; i--) {
+            list = list.prepend(elements.get(i));
+        }
+        return list;
+    }
+
+    private static List<Integer> createElements(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    private static void assertSameElements(ChunkedList<Integer> actual, List<Integer> expected) {
+        assertThat(actual).hasSize(expected.size()).containsExactlyElementsOf(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isEqualTo(expected.get(i));
+        }
+        if (!expected.isEmpty()) {
+            assertThat(actual.first()).isEqualTo(expected.get(0));
+            assertThat(actual.last()).isEqualTo(expected.get(expected.size() - 1));
+        }
+    }
+
+    private static List<DynamicTest> forAllLayouts(Check check) {
+        var tests = new ArrayList<DynamicTest>();
+        BUILDERS.forEach((name, builder) -> {
+            for (var size : SIZES) {
+                tests.add(DynamicTest.dynamicTest(name + " " + size, () -> {
+                    var expected = createElements(size);
+                    check.accept(builder.apply(expected), expected);
+                }));
+            }
+        });
+        return tests;
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_get_ok() {
+        return forAllLayouts((list, expected) -> {
+            assertSameElements(list, expected);
+            assertThatThrownBy(() -> list.get(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+            assertThatThrownBy(() -> list.get(expected.size())).isInstanceOf(IndexOutOfBoundsException.class);
+        });
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_prependAndAppend_ok() {
+        return forAllLayouts((list, expected) -> {
+            var prepended = new ArrayList<>(expected);
+            prepended.add(0, -1);
+            var appended = new ArrayList<>(expected);
+            appended.add(-1);
+
+            assertSameElements(list.prepend(-1), prepended);
+            assertSameElements(list.append(-1), appended);
+            assertSameElements(list, expected);
+        });
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_withoutFirstAndLast_ok() {
+        return forAllLayouts((list, expected) -> {
+            if (expected.isEmpty()) {
+                assertThatThrownBy(list::withoutFirst).isInstanceOf(NoSuchElementException.class);
+                assertThatThrownBy(list::withoutLast).isInstanceOf(NoSuchElementException.class);
+                return;
+            }
+            assertSameElements(list.withoutFirst(), expected.subList(1, expected.size()));
+            assertSameElements(list.withoutLast(), expected.subList(0, expected.size() - 1));
+            assertSameElements(list, expected);
+        });
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_drainFromBothEnds_ok() {
+        return forAllLayouts((list, expected) -> {
+            var fromFront = list;
+            var fromBack = list;
+            for (int i = 0; i < expected.size(); i++) {
+                fromFront = fromFront.withoutFirst();
+                fromBack = fromBack.withoutLast();
+                assertSameElements(fromFront, expected.subList(i + 1, expected.size()));
+                assertSameElements(fromBack, expected.subList(0, expected.size() - i - 1));
+            }
+            assertThat(fromFront).isEmpty();
+            assertThat(fromBack).isEmpty();
+        });
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_withoutIndex_ok() {
+        return forAllLayouts((list, expected) -> {
+            for (int i = 0; i < expected.size(); i++) {
+                var reduced = new ArrayList<>(expected);
+                reduced.remove(i);
+
+                var result = list.without(i);
+
+                assertSameElements(result, reduced);
+                // further modifications of the result have to respect its chunk layout
+                if (!reduced.isEmpty()) {
+                    var extended = new ArrayList<>(reduced);
+                    extended.add(0, -1);
+                    extended.add(-2);
+                    assertSameElements(result.prepend(-1).append(-2), extended);
+                }
+            }
+            assertThatThrownBy(() -> list.without(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+            assertThatThrownBy(() -> list.without(expected.size())).isInstanceOf(IndexOutOfBoundsException.class);
+            assertSameElements(list, expected);
+        });
+    }
+
+    @TestFactory
+    public List<DynamicTest> test_withoutFirstMatching_ok() {
+        return forAllLayouts((list, expected) -> {
+            for (var element : expected) {
+                var reduced = new ArrayList<>(expected);
+                reduced.remove(element);
+
+                assertSameElements(list.withoutFirstMatching(element::equals), reduced);
+            }
+            assertThat(list.withoutFirstMatching(it -> it < 0)).isSameAs(list);
+        });
+    }
+
+    @Test
+    void test_firstMatchOnlyIsRemoved_ok() {
+        var expected = IntStream.range(0, 100).map(i -> i % 40).boxed().collect(Collectors.toList());
+        var list = ChunkedList.copyOf(expected);
+        var reduced = new ArrayList<>(expected);
+        reduced.remove(Integer.valueOf(35));
+
+        assertSameElements(list.withoutFirstMatching(it -> it == 35), reduced);
+    }
+
+    @Test
+    void test_emptyList_fail() {
+        var list = ChunkedList.<Integer>empty();
+
+        assertThatThrownBy(list::first).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(list::last).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @FunctionalInterface
+    private interface Check {
+        void accept(ChunkedList<Integer> list, List<Integer> expected) throws Throwable;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.ChunkedList;
+import org.wiremock.extensions.state.internal.model.Context;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContextCodecTest {
+
+    private static Context roundTrip(Context context) {
+        return ContextCodec.decode(ByteBuffer.wrap(ContextCodec.encode(context)));
+    }
+
+    private static void assertSameContext(Context actual, Context expected) {
+        assertThat(actual.getContextName()).isEqualTo(expected.getContextName());
+        assertThat(actual.getProperties()).isEqualTo(expected.getProperties());
+        assertThat(actual.getList()).containsExactlyElementsOf(expected.getList());
+        assertThat(actual.getUpdateCount()).isEqualTo(expected.getUpdateCount());
+        assertThat(actual.getTtl()).isEqualTo(expected.getTtl());
+    }
+
+    @Test
+    void test_emptyContext_ok() {
+        var context = new Context("empty");
+
+        var decoded = roundTrip(context);
+
+        assertSameContext(decoded, context);
+        assertThat(decoded.getProperties()).isEmpty();
+        assertThat(decoded.getList()).isEmpty();
+        assertThat(decoded.getTtl()).isNull();
+    }
+
+    @Test
+    void test_propertiesWithUnicodeAndNull_ok() {
+        var properties = new HashMap<String, String>();
+        properties.put("schlüssel", "wert ✓");
+        properties.put("emoji 😀", "日本語");
+        properties.put("empty", "");
+        properties.put("missing", null);
+        var context = new Context("kontext-äöü").withProperties(properties);
+
+        assertSameContext(roundTrip(context), context);
+    }
+
+    @Test
+    void test_largeList_ok() {
+        var list = IntStream.range(0, 1000)
+            .mapToObj(i -> Map.of("index", String.valueOf(i), "value", "x".repeat(i % 200)))
+            .collect(Collectors.toList());
+        var context = new Context("list").withList(ChunkedList.copyOf(list));
+
+        var decoded = roundTrip(context);
+
+        assertSameContext(decoded, context);
+        assertThat(decoded.getList().get(999)).containsEntry("index", "999");
+    }
+
+    @Test
+    void test_ttlAndUpdateCount_ok() {
+        for (var updateCount : new long[]{0, 1, 127, 128, 300, Long.MAX_VALUE}) {
+            for (var ttl : new Duration[]{null, Duration.ZERO, Duration.ofMillis(1), Duration.ofDays(365 * 100)}) {
+                var context = Context.restore("ttl", new HashMap<>(), ChunkedList.empty(), updateCount, ttl);
+
+                assertSameContext(roundTrip(context), context);
+            }
+        }
+    }
+
+    @Test
+    void test_ttlBeyondNanosecondRangeIsSaturated_ok() {
+        var context = new Context("ttl").withTtl(Duration.ofSeconds(Long.MAX_VALUE));
+
+        var decoded = roundTrip(context);
+
+        assertThat(decoded.getTtl()).isEqualTo(Duration.ofMillis(Duration.ofNanos(Long.MAX_VALUE).toMillis()));
+    }
+
+    @Test
+    void test_decodeAdvancesPastContext_ok() {
+        var first = new Context("first").withProperties(Map.of("key", "value"));
+        var second = new Context("second").withIncrementedUpdateCount();
+        var firstBytes = ContextCodec.encode(first);
+        var secondBytes = ContextCodec.encode(second);
+        var buffer = ByteBuffer.allocate(firstBytes.length + secondBytes.length).put(firstBytes).put(secondBytes).flip();
+
+        assertSameContext(ContextCodec.decode(buffer), first);
+        assertSameContext(ContextCodec.decode(buffer), second);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void test_unsupportedVersion_fail() {
+        var bytes = ContextCodec.encode(new Context("version"));
+        bytes[0] = 2;
+
+        assertThatThrownBy(() -> ContextCodec.decode(ByteBuffer.wrap(bytes)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("version");
+    }
+}
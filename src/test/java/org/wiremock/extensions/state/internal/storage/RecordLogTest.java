@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordLogTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    private final HeapStorage storage = new HeapStorage();
+    private final Map<String, Long> addresses = new HashMap<>();
+    private final RecordLog.Index index = new RecordLog.Index() {
+        @Override
+        public boolean isLive(String key, byte type, long address) {
+            return type == RecordLog.TYPE_VALUE && Long.valueOf(address).equals(addresses.get(key));
+        }
+
+        @Override
+        public void moved(String key, long oldAddress, long newAddress) {
+            addresses.replace(key, oldAddress, newAddress);
+        }
+    };
+
+    private static byte[] payload(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(ByteBuffer payload) {
+        var bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void put(RecordLog log, String key, String value) {
+        var address = log.append(key, RecordLog.TYPE_VALUE, payload(value), index);
+        var previous = addresses.put(key, address);
+        if (previous != null) {
+            log.markDead(previous);
+        }
+    }
+
+    private void remove(RecordLog log, String key) {
+        var previous = addresses.remove(key);
+        if (previous != null) {
+            log.markDead(previous);
+        }
+    }
+
+    private String get(RecordLog log, String key) {
+        return read(log.readPayload(addresses.get(key)));
+    }
+
+    @Test
+    void test_appendAndRead_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+
+        put(log, "context:one", "first");
+        put(log, "context:two", "second ✓");
+
+        assertThat(get(log, "context:one")).isEqualTo("first");
+        assertThat(get(log, "context:two")).isEqualTo("second ✓");
+        assertThat(log.getAllocatedBytes()).isEqualTo(SEGMENT_SIZE);
+    }
+
+    @Test
+    void test_overwriteMarksOldRecordDead_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+        put(log, "context:one", "first");
+        var liveBytes = log.getLiveBytes();
+
+        put(log, "context:one", "other");
+
+        assertThat(get(log, "context:one")).isEqualTo("other");
+        assertThat(log.getLiveBytes()).isEqualTo(liveBytes);
+    }
+
+    @Test
+    void test_removeMarksRecordDead_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+        put(log, "context:one", "first");
+
+        remove(log, "context:one");
+
+        assertThat(log.getLiveBytes()).isZero();
+    }
+
+    @Test
+    void test_segmentRollover_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+
+        for (int i = 0; i < 20; i++) {
+            put(log, "context:" + i, "value-" + i);
+        }
+
+        assertThat(storage.allocated).hasSizeGreaterThan(1);
+        assertThat(log.getAllocatedBytes()).isEqualTo((long) storage.allocated.size() * SEGMENT_SIZE);
+        for (int i = 0; i < 20; i++) {
+            assertThat(get(log, "context:" + i)).isEqualTo("value-" + i);
+        }
+        var visited = new ArrayList<String>();
+        log.forEachRecord((key, type, address, payload) -> visited.add(key));
+        assertThat(visited).hasSize(20).startsWith("context:0").endsWith("context:19");
+    }
+
+    @Test
+    void test_compactionMovesLiveRecordsAndReleasesSegments_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 3, storage);
+        put(log, "context:kept", "kept");
+
+        for (int i = 0; i < 200; i++) {
+            put(log, "context:changed", "value-" + i);
+        }
+
+        assertThat(storage.released).isNotEmpty();
+        assertThat(log.getAllocatedBytes()).isLessThanOrEqualTo(3L * SEGMENT_SIZE);
+        assertThat(get(log, "context:kept")).isEqualTo("kept");
+        assertThat(get(log, "context:changed")).isEqualTo("value-199");
+    }
+
+    @Test
+    void test_fullLog_fail() {
+        var log = new RecordLog(SEGMENT_SIZE, 2, storage);
+
+        assertThatThrownBy(() -> {
+            for (int i = 0; i < 100; i++) {
+                put(log, "context:" + i, "value-" + i);
+            }
+        }).isInstanceOf(IllegalStateException.class).hasMessageContaining("store is full");
+    }
+
+    @Test
+    void test_recordLargerThanSegment_fail() {
+        var log = new RecordLog(SEGMENT_SIZE, 2, storage);
+
+        assertThatThrownBy(() -> put(log, "context:large", "x".repeat(SEGMENT_SIZE)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void test_restoreSegments_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+        for (int i = 0; i < 20; i++) {
+            put(log, "context:" + (i % 5), "value-" + i);
+        }
+
+        var restored = new RecordLog(SEGMENT_SIZE, 4, storage);
+        for (var entry : storage.allocated.entrySet()) {
+            var buffer = entry.getValue();
+            restored.restoreSegment(entry.getKey(), buffer, RecordLog.findWritePosition(buffer));
+        }
+        var restoredAddresses = new HashMap<String, Long>();
+        restored.forEachRecord((key, type, address, payload) -> restoredAddresses.put(key, address));
+        restoredAddresses.values().forEach(restored::restoreLive);
+
+        assertThat(restoredAddresses).isEqualTo(addresses);
+        assertThat(restored.getLiveBytes()).isEqualTo(log.getLiveBytes());
+        assertThat(read(restored.readPayload(restoredAddresses.get("context:4")))).isEqualTo("value-19");
+    }
+
+    @Test
+    void test_clearReleasesAllSegments_ok() {
+        var log = new RecordLog(SEGMENT_SIZE, 4, storage);
+        for (int i = 0; i < 20; i++) {
+            put(log, "context:" + i, "value-" + i);
+        }
+
+        log.clear();
+
+        assertThat(storage.released).containsExactlyInAnyOrderElementsOf(storage.allocated.keySet());
+        assertThat(log.getAllocatedBytes()).isZero();
+    }
+
+    private static class HeapStorage implements RecordLog.SegmentStorage {
+        private final Map<Integer, ByteBuffer> allocated = new TreeMap<>();
+        private final List<Integer> released = new ArrayList<>();
+
+        @Override
+        public ByteBuffer allocate(int segmentId, int size) {
+            var buffer = ByteBuffer.allocate(size);
+            allocated.put(segmentId, buffer);
+            return buffer;
+        }
+
+        @Override
+        public void release(int segmentId, ByteBuffer buffer) {
+            released.add(segmentId);
+        }
+    }
+}